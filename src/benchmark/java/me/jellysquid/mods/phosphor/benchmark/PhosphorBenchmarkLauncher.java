@@ -0,0 +1,104 @@
+package me.jellysquid.mods.phosphor.benchmark;
+
+import me.jellysquid.mods.phosphor.benchmark.check.LightCheckRunner;
+import me.jellysquid.mods.phosphor.benchmark.trace.TraceReplayer;
+import net.fabricmc.loader.api.entrypoint.PreLaunchEntrypoint;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point for the benchmark harnesses. The harness to run is selected with the {@code phosphor.benchmark.mode}
+ * system property, which is set by the corresponding Gradle task. If no mode is given, the game launches as usual.
+ *
+ * JMH is run in-process without forking, as the benchmarked code depends on our mixins which are only applied by the
+ * Knot class loader we are running within.
+ */
+public class PhosphorBenchmarkLauncher implements PreLaunchEntrypoint {
+    private static final Logger LOGGER = LogManager.getLogger("Phosphor Benchmark");
+
+    @Override
+    public void onPreLaunch() {
+        String mode = System.getProperty("phosphor.benchmark.mode");
+
+        if ("jmh".equals(mode)) {
+            System.exit(runJmh() ? 0 : 1);
+        } else if ("replay".equals(mode)) {
+            System.exit(runReplay() ? 0 : 1);
+        } else if ("checks".equals(mode)) {
+            System.exit(runChecks() ? 0 : 1);
+        }
+    }
+
+    /**
+     * Replays a single trace once, which is useful for attaching a profiler to the light engine.
+     */
+    private static boolean runReplay() {
+        File file = new File(System.getProperty("phosphor.benchmark.trace"));
+
+        try {
+            TraceReplayer replayer = TraceReplayer.create(TraceReplayer.load(file));
+
+            long start = System.nanoTime();
+            long records = replayer.replay();
+            long elapsed = System.nanoTime() - start;
+
+            LOGGER.info("Replayed {} records of world {} in {} ms, of which {} ms were spent in {} light update calls",
+                    records, replayer.getWorldName(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    TimeUnit.NANOSECONDS.toMillis(replayer.getLightUpdateTime()), replayer.getLightUpdateCalls());
+        } catch (IOException e) {
+            LOGGER.error("Could not replay trace {}", file, e);
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Runs the scripted light checks, see {@link LightCheckRunner}.
+     */
+    private static boolean runChecks() {
+        File budgets = new File(System.getProperty("phosphor.benchmark.budgets"));
+
+        try {
+            return LightCheckRunner.run(budgets, Boolean.getBoolean("phosphor.benchmark.updateBudgets"));
+        } catch (IOException e) {
+            LOGGER.error("Could not read or write budgets {}", budgets, e);
+
+            return false;
+        }
+    }
+
+    private static boolean runJmh() {
+        File outputDir = new File(System.getProperty("phosphor.benchmark.output", "."));
+        outputDir.mkdirs();
+
+        Options opts = new OptionsBuilder()
+                .include(System.getProperty("phosphor.benchmark.include", "me\\.jellysquid\\.mods\\.phosphor\\.benchmark\\.jmh\\..*"))
+                .forks(0)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(new File(outputDir, "jmh-results.json").getAbsolutePath())
+                .build();
+
+        try {
+            new Runner(opts).run();
+        } catch (RunnerException e) {
+            LOGGER.error("Could not run the JMH benchmarks", e);
+
+            return false;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,124 @@
+package me.jellysquid.mods.phosphor.benchmark.check;
+
+import me.jellysquid.mods.phosphor.benchmark.world.Scenario;
+import me.jellysquid.mods.phosphor.benchmark.world.SyntheticLightWorld;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.LightType;
+
+/**
+ * Scripted edits of small synthetic worlds, together with the light values expected after them. Each check runs on a
+ * fresh world with a radius of one chunk around the origin, so that edits in the center column can spread into all of
+ * its neighbours.
+ */
+public enum LightCheck {
+    /**
+     * Places a single light source in the open and removes it again.
+     */
+    PLACE_AND_REMOVE_SOURCE(Scenario.OPEN_SKY) {
+        @Override
+        public void run(LightCheckContext ctx) {
+            BlockPos pos = new BlockPos(8, 70, 8);
+
+            ctx.step("place", () -> ctx.getWorld().setBlockState(pos, Blocks.GLOWSTONE.getDefaultState()));
+            ctx.expectLight(LightType.BLOCK, pos, 15);
+            ctx.expectLight(LightType.BLOCK, pos.east(5), 10);
+
+            ctx.step("remove", () -> ctx.getWorld().setBlockState(pos, Blocks.AIR.getDefaultState()));
+            ctx.expectLight(LightType.BLOCK, pos, 0);
+            ctx.expectLight(LightType.BLOCK, pos.east(5), 0);
+        }
+    },
+    /**
+     * Builds a small roof above the ground and tears it down again, which darkens and re-lights the sky light below.
+     */
+    PLACE_AND_REMOVE_ROOF(Scenario.OPEN_SKY) {
+        @Override
+        public void run(LightCheckContext ctx) {
+            ctx.step("place", () -> fillBox(ctx.getWorld(), 6, 70, 6, 10, 70, 10, Blocks.STONE.getDefaultState()));
+            ctx.expectLight(LightType.SKY, new BlockPos(8, 69, 8), 12);
+            ctx.expectLight(LightType.SKY, new BlockPos(8, 71, 8), 15);
+
+            ctx.step("remove", () -> fillBox(ctx.getWorld(), 6, 70, 6, 10, 70, 10, Blocks.AIR.getDefaultState()));
+            ctx.expectLight(LightType.SKY, new BlockPos(8, 69, 8), 15);
+        }
+    },
+    /**
+     * Fills a whole section of the center column and clears it again, which creates and removes a lightmap.
+     */
+    FILL_AND_CLEAR_SECTION(Scenario.OPEN_SKY) {
+        @Override
+        public void run(LightCheckContext ctx) {
+            ctx.step("fill", () -> fillBox(ctx.getWorld(), 0, 80, 0, 15, 95, 15, Blocks.STONE.getDefaultState()));
+            ctx.expectLight(LightType.SKY, new BlockPos(8, 96, 8), 15);
+            ctx.expectLight(LightType.SKY, new BlockPos(8, 79, 8), 7);
+
+            ctx.step("clear", () -> fillBox(ctx.getWorld(), 0, 80, 0, 15, 95, 15, Blocks.AIR.getDefaultState()));
+            ctx.expectLight(LightType.SKY, new BlockPos(8, 79, 8), 15);
+        }
+    },
+    /**
+     * Disables a column as if it was unloaded, places a light source in it while it is disabled and enables it again as
+     * if it was loaded from disk.
+     */
+    UNLOAD_AND_RELOAD_COLUMN(Scenario.OPEN_SKY) {
+        @Override
+        public void run(LightCheckContext ctx) {
+            BlockPos pos = new BlockPos(24, 70, 8);
+
+            ctx.step("unload", () -> ctx.getWorld().disableColumn(1, 0));
+
+            // Bypass the light engine, as the column is not loaded
+            ctx.getWorld().getChunks().setBlockState(pos.getX(), pos.getY(), pos.getZ(), Blocks.GLOWSTONE.getDefaultState());
+
+            ctx.step("reload", () -> ctx.getWorld().enableColumn(1, 0));
+            ctx.expectLight(LightType.BLOCK, pos, 15);
+            ctx.expectLight(LightType.BLOCK, new BlockPos(15, 70, 8), 6);
+            ctx.expectLight(LightType.SKY, new BlockPos(24, 80, 8), 15);
+        }
+    },
+    /**
+     * Toggles a light source repeatedly, as a redstone lamp in a clock would.
+     */
+    TOGGLE_SOURCE(Scenario.OPEN_SKY) {
+        @Override
+        public void run(LightCheckContext ctx) {
+            BlockPos pos = new BlockPos(8, 66, 8);
+
+            ctx.step("toggle", () -> {
+                for (int i = 0; i < 10; i++) {
+                    ctx.getWorld().setBlockState(pos, Blocks.GLOWSTONE.getDefaultState());
+                    ctx.getWorld().runLightUpdates();
+
+                    ctx.getWorld().setBlockState(pos, Blocks.AIR.getDefaultState());
+                    ctx.getWorld().runLightUpdates();
+                }
+            });
+
+            ctx.expectLight(LightType.BLOCK, pos, 0);
+        }
+    };
+
+    private final Scenario scenario;
+
+    LightCheck(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
+    public Scenario getScenario() {
+        return this.scenario;
+    }
+
+    public abstract void run(LightCheckContext ctx);
+
+    private static void fillBox(SyntheticLightWorld world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, BlockState state) {
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    world.setBlockState(new BlockPos(x, y, z), state);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package me.jellysquid.mods.phosphor.benchmark.check;
+
+import me.jellysquid.mods.phosphor.benchmark.world.SyntheticLightWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.LightType;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The state a single {@link LightCheck} is run with. Edits are grouped into named steps, for each of which the work
+ * performed by the light engines is recorded, and light values are asserted in between.
+ */
+public class LightCheckContext {
+    private final LightCheck check;
+    private final SyntheticLightWorld world;
+
+    private final Map<String, Long> counters;
+    private final List<String> failures;
+
+    LightCheckContext(LightCheck check, SyntheticLightWorld world, Map<String, Long> counters, List<String> failures) {
+        this.check = check;
+        this.world = world;
+        this.counters = counters;
+        this.failures = failures;
+    }
+
+    public SyntheticLightWorld getWorld() {
+        return this.world;
+    }
+
+    /**
+     * Performs the given edit, processes all resulting light updates and records the work this took under the keys
+     * {@code <check>.<step>.<counter>}.
+     */
+    public void step(String name, Runnable edit) {
+        Map<String, Long> before = WorkCounters.capture(this.world);
+
+        edit.run();
+        this.world.runLightUpdates();
+
+        Map<String, Long> delta = WorkCounters.delta(before, WorkCounters.capture(this.world));
+
+        for (Map.Entry<String, Long> entry : delta.entrySet()) {
+            this.counters.put(this.check.name() + "." + name + "." + entry.getKey(), entry.getValue());
+        }
+    }
+
+    public void expectLight(LightType type, BlockPos pos, int expected) {
+        int actual = this.world.getLightLevel(type, pos);
+
+        if (actual != expected) {
+            this.failures.add(String.format("%s: expected %s light %d at [%d, %d, %d], but found %d", this.check.name(),
+                    type, expected, pos.getX(), pos.getY(), pos.getZ(), actual));
+        }
+    }
+}
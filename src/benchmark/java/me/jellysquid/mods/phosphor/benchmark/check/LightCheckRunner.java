@@ -0,0 +1,107 @@
+package me.jellysquid.mods.phosphor.benchmark.check;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import me.jellysquid.mods.phosphor.benchmark.world.SyntheticLightWorld;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs every {@link LightCheck} and compares the work counters recorded for its steps against a budget file. A check
+ * fails if a light value differs from the expected one, or if any counter exceeds its budget. Counters without a
+ * budget fail as well, as they would otherwise go unchecked. New checks therefore need their budgets recorded in update
+ * mode before they pass.
+ *
+ * Budgets are upper bounds, so optimizations which reduce the work done never fail the checks. After such an
+ * optimization, the budgets should be lowered by running the checks in update mode, which replaces the budget file with
+ * the observed counters.
+ */
+public class LightCheckRunner {
+    private static final Logger LOGGER = LogManager.getLogger("Phosphor Benchmark");
+
+    private static final long WORLD_SEED = 0L;
+
+    public static boolean run(File budgetFile, boolean updateBudgets) throws IOException {
+        Map<String, Long> counters = new TreeMap<>();
+        List<String> failures = new ArrayList<>();
+
+        for (LightCheck check : LightCheck.values()) {
+            SyntheticLightWorld world = SyntheticLightWorld.create(check.getScenario(), 1, WORLD_SEED);
+
+            check.run(new LightCheckContext(check, world, counters, failures));
+        }
+
+        if (updateBudgets) {
+            writeBudgets(budgetFile, counters);
+
+            LOGGER.info("Wrote {} budgets to {}", counters.size(), budgetFile);
+        } else {
+            Map<String, Long> budgets = readBudgets(budgetFile);
+
+            if (budgets.isEmpty()) {
+                failures.add(String.format("No budgets found in %s, record them by running the checks in update mode", budgetFile));
+            }
+
+            for (Map.Entry<String, Long> entry : counters.entrySet()) {
+                Long budget = budgets.get(entry.getKey());
+
+                if (budget == null) {
+                    failures.add(String.format("%s: observed %d, but there is no budget", entry.getKey(), entry.getValue()));
+                } else if (entry.getValue() > budget) {
+                    failures.add(String.format("%s: observed %d, but the budget is %d", entry.getKey(), entry.getValue(), budget));
+                }
+            }
+        }
+
+        for (String failure : failures) {
+            LOGGER.error(failure);
+        }
+
+        LOGGER.info("Ran {} light checks with {} counters, {} failures", LightCheck.values().length, counters.size(), failures.size());
+
+        return failures.isEmpty();
+    }
+
+    private static Map<String, Long> readBudgets(File file) throws IOException {
+        Map<String, Long> budgets = new TreeMap<>();
+
+        if (!file.exists()) {
+            return budgets;
+        }
+
+        try (Reader reader = new FileReader(file)) {
+            JsonObject json = new JsonParser().parse(reader).getAsJsonObject();
+
+            for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
+                budgets.put(entry.getKey(), entry.getValue().getAsLong());
+            }
+        }
+
+        return budgets;
+    }
+
+    private static void writeBudgets(File file, Map<String, Long> budgets) throws IOException {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+        file.getParentFile().mkdirs();
+
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(gson.toJson(budgets));
+            writer.write('\n');
+        }
+    }
+}
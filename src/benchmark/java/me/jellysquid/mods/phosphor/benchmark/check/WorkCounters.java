@@ -0,0 +1,57 @@
+package me.jellysquid.mods.phosphor.benchmark.check;
+
+import me.jellysquid.mods.phosphor.benchmark.world.SyntheticLightWorld;
+import me.jellysquid.mods.phosphor.common.metrics.LightEngineMetrics;
+import me.jellysquid.mods.phosphor.common.metrics.LightEngineMetricsAccess;
+import net.minecraft.world.LightType;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads the work counters of both light engines of a synthetic world. Unlike timings, these only depend on the world
+ * and the edits performed on it, so they are reproducible between runs and machines.
+ */
+public class WorkCounters {
+    private static final LightType[] TYPES = new LightType[] { LightType.BLOCK, LightType.SKY };
+
+    /**
+     * Returns the current value of every counter, keyed by {@code <light type>.<counter>}.
+     */
+    public static Map<String, Long> capture(SyntheticLightWorld world) {
+        Map<String, Long> counters = new TreeMap<>();
+
+        for (LightType type : TYPES) {
+            LightEngineMetrics metrics = ((LightEngineMetricsAccess) world.getLightProvider(type)).getMetrics();
+            LightEngineMetrics.Snapshot snapshot = metrics.snapshot();
+
+            String prefix = type.name().toLowerCase(Locale.ROOT) + ".";
+
+            counters.put(prefix + "propagations", snapshot.getPropagations());
+            counters.put(prefix + "lightmapsCreated", snapshot.getLightmapsCreated());
+            counters.put(prefix + "lightmapsRemoved", snapshot.getLightmapsRemoved());
+            counters.put(prefix + "lightmapsCopied", snapshot.getLightmapsCopied());
+            counters.put(prefix + "trivialLightmapsReclaimed", snapshot.getTrivialLightmapsReclaimed());
+            counters.put(prefix + "publishes", snapshot.getPublishes());
+            counters.put(prefix + "sectionsPublished", snapshot.getSectionsPublished());
+        }
+
+        counters.put("notifications", world.getChunks().getLightUpdateNotifications());
+
+        return counters;
+    }
+
+    /**
+     * Returns the difference between two captures of the same world.
+     */
+    public static Map<String, Long> delta(Map<String, Long> before, Map<String, Long> after) {
+        Map<String, Long> delta = new TreeMap<>();
+
+        for (Map.Entry<String, Long> entry : after.entrySet()) {
+            delta.put(entry.getKey(), entry.getValue() - before.getOrDefault(entry.getKey(), 0L));
+        }
+
+        return delta;
+    }
+}
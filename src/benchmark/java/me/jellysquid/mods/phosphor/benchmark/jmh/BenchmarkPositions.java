@@ -0,0 +1,72 @@
+package me.jellysquid.mods.phosphor.benchmark.jmh;
+
+import me.jellysquid.mods.phosphor.benchmark.world.SyntheticLightWorld;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Selects the positions which are modified by the benchmarks. Positions are always taken from the center column of a
+ * world, so that all of their neighbours are loaded.
+ */
+public class BenchmarkPositions {
+    public static final int WORLD_RADIUS = 2;
+    public static final long WORLD_SEED = 0x5EEDL;
+
+    private static final int MAX_ATTEMPTS = 1 << 16;
+
+    /**
+     * Picks up to {@param count} random positions whose block state matches the predicate.
+     */
+    public static BlockPos[] findBlocks(SyntheticLightWorld world, int count, Predicate<BlockState> predicate) {
+        Random random = new Random(WORLD_SEED);
+        List<BlockPos> positions = new ArrayList<>();
+
+        for (int i = 0; i < MAX_ATTEMPTS && positions.size() < count; i++) {
+            BlockPos pos = new BlockPos(random.nextInt(16), 1 + random.nextInt(254), random.nextInt(16));
+
+            if (predicate.test(world.getBlockState(pos))) {
+                positions.add(pos);
+            }
+        }
+
+        return toArray(positions);
+    }
+
+    /**
+     * Picks up to {@param count} random positions of the top-most opaque block in a column, i.e. blocks which cast a
+     * shadow when placed.
+     */
+    public static BlockPos[] findSurfaceBlocks(SyntheticLightWorld world, int count) {
+        Random random = new Random(WORLD_SEED);
+        List<BlockPos> positions = new ArrayList<>();
+
+        for (int i = 0; i < MAX_ATTEMPTS && positions.size() < count; i++) {
+            int x = random.nextInt(16);
+            int z = random.nextInt(16);
+
+            for (int y = 255; y >= 0; y--) {
+                BlockPos pos = new BlockPos(x, y, z);
+
+                if (world.getBlockState(pos).isOpaque()) {
+                    positions.add(pos);
+                    break;
+                }
+            }
+        }
+
+        return toArray(positions);
+    }
+
+    private static BlockPos[] toArray(List<BlockPos> positions) {
+        if (positions.isEmpty()) {
+            throw new IllegalStateException("No suitable positions found in world");
+        }
+
+        return positions.toArray(new BlockPos[0]);
+    }
+}
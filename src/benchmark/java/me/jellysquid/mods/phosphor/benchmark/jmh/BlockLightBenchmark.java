@@ -0,0 +1,73 @@
+package me.jellysquid.mods.phosphor.benchmark.jmh;
+
+import me.jellysquid.mods.phosphor.benchmark.world.Scenario;
+import me.jellysquid.mods.phosphor.benchmark.world.SyntheticLightWorld;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockPos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures complete block light update cycles, i.e. placing a light source into the world and removing it again. This
+ * exercises both the increasing and decreasing propagation paths of the block light provider.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BlockLightBenchmark {
+    @Param({ "TORCH_GRID", "CAVES", "OPEN_SKY", "FLOATING_ISLANDS", "OCEAN", "GREENHOUSES", "FULL_STONE" })
+    public Scenario scenario;
+
+    private SyntheticLightWorld world;
+
+    private BlockPos[] positions;
+    private int nextPosition;
+
+    private BlockState source;
+    private BlockState air;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.world = SyntheticLightWorld.create(this.scenario, BenchmarkPositions.WORLD_RADIUS, BenchmarkPositions.WORLD_SEED);
+        this.positions = BenchmarkPositions.findBlocks(this.world, 256, BlockState::isAir);
+
+        this.source = Blocks.GLOWSTONE.getDefaultState();
+        this.air = Blocks.AIR.getDefaultState();
+    }
+
+    @Benchmark
+    public void placeAndRemoveLightSource() {
+        BlockPos pos = this.positions[this.nextPosition++ % this.positions.length];
+
+        this.world.setBlockState(pos, this.source);
+        this.world.runLightUpdates();
+
+        this.world.setBlockState(pos, this.air);
+        this.world.runLightUpdates();
+    }
+
+    @Benchmark
+    public void placeAndRemoveOpaqueBlock() {
+        BlockPos pos = this.positions[this.nextPosition++ % this.positions.length];
+
+        this.world.setBlockState(pos, Blocks.STONE.getDefaultState());
+        this.world.runLightUpdates();
+
+        this.world.setBlockState(pos, this.air);
+        this.world.runLightUpdates();
+    }
+}
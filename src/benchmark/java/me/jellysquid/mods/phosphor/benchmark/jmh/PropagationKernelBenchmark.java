@@ -0,0 +1,123 @@
+package me.jellysquid.mods.phosphor.benchmark.jmh;
+
+import me.jellysquid.mods.phosphor.benchmark.world.Scenario;
+import me.jellysquid.mods.phosphor.benchmark.world.SyntheticLightWorld;
+import me.jellysquid.mods.phosphor.common.chunk.level.LevelPropagatorExtended;
+import me.jellysquid.mods.phosphor.common.chunk.light.LevelPropagatorAccess;
+import me.jellysquid.mods.phosphor.common.util.math.DirectionHelper;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.LightType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the individual propagation kernels of the light providers in isolation, without any queue management. Each
+ * operation is a single call for one pair of neighbouring positions, so the results are in propagations per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PropagationKernelBenchmark {
+    private static final int PAIR_COUNT = 1024;
+
+    @Param({ "TORCH_GRID", "CAVES", "OPEN_SKY", "FLOATING_ISLANDS", "OCEAN", "GREENHOUSES", "FULL_STONE" })
+    public Scenario scenario;
+
+    private LevelPropagatorExtended blockLight;
+    private LevelPropagatorExtended skyLight;
+    private LevelPropagatorAccess skyLightAccess;
+
+    private final long[] from = new long[PAIR_COUNT];
+    private final long[] to = new long[PAIR_COUNT];
+    private final int[] blockLevels = new int[PAIR_COUNT];
+    private final int[] skyLevels = new int[PAIR_COUNT];
+    private final int[][] offsets = new int[PAIR_COUNT][];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SyntheticLightWorld world = SyntheticLightWorld.create(this.scenario, BenchmarkPositions.WORLD_RADIUS, BenchmarkPositions.WORLD_SEED);
+
+        this.blockLight = (LevelPropagatorExtended) world.getLightProvider(LightType.BLOCK);
+        this.skyLight = (LevelPropagatorExtended) world.getLightProvider(LightType.SKY);
+        this.skyLightAccess = (LevelPropagatorAccess) world.getLightProvider(LightType.SKY);
+
+        Random random = new Random(BenchmarkPositions.WORLD_SEED);
+        Direction[] directions = Direction.values();
+
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            BlockPos pos = new BlockPos(random.nextInt(16), 1 + random.nextInt(254), random.nextInt(16));
+            Direction dir = directions[random.nextInt(directions.length)];
+            BlockPos adj = pos.offset(dir);
+
+            this.from[i] = pos.asLong();
+            this.to[i] = adj.asLong();
+
+            // The light engine works with inverted levels, where 0 is the brightest
+            this.blockLevels[i] = 15 - world.getLightLevel(LightType.BLOCK, pos);
+            this.skyLevels[i] = 15 - world.getLightLevel(LightType.SKY, pos);
+
+            this.offsets[i] = new int[] { dir.getOffsetX(), dir.getOffsetY(), dir.getOffsetZ() };
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIR_COUNT)
+    public void blockGetPropagatedLevel(Blackhole bh) {
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            bh.consume(this.blockLight.getPropagatedLevel(this.from[i], null, this.to[i], this.blockLevels[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIR_COUNT)
+    public void skyGetPropagatedLevel(Blackhole bh) {
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            bh.consume(this.skyLight.getPropagatedLevel(this.from[i], null, this.to[i], this.skyLevels[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIR_COUNT)
+    public void skyRecalculateLevel(Blackhole bh) {
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            bh.consume(this.skyLightAccess.invokeRecalculateLevel(this.to[i], this.from[i], 15));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIR_COUNT)
+    public void directionHelperLookup(Blackhole bh) {
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            int[] offset = this.offsets[i];
+
+            bh.consume(DirectionHelper.getVecDirection(offset[0], offset[1], offset[2]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIR_COUNT)
+    public void vanillaDirectionLookup(Blackhole bh) {
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            int[] offset = this.offsets[i];
+
+            bh.consume(Direction.fromVector(offset[0], offset[1], offset[2]));
+        }
+    }
+}
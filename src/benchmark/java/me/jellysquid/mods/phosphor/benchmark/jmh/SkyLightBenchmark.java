@@ -0,0 +1,68 @@
+package me.jellysquid.mods.phosphor.benchmark.jmh;
+
+import me.jellysquid.mods.phosphor.benchmark.world.Scenario;
+import me.jellysquid.mods.phosphor.benchmark.world.SyntheticLightWorld;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockPos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures sky light update cycles by removing blocks which cast a shadow and placing them back again. Removing the
+ * top-most block of a column lets sky light fall through the whole column below it, which exercises the vertical
+ * propagation paths of the sky light provider.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SkyLightBenchmark {
+    @Param({ "TORCH_GRID", "CAVES", "OPEN_SKY", "FLOATING_ISLANDS", "OCEAN", "GREENHOUSES", "FULL_STONE" })
+    public Scenario scenario;
+
+    private SyntheticLightWorld world;
+
+    private BlockPos[] positions;
+    private BlockState[] states;
+    private int nextPosition;
+
+    private BlockState air;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.world = SyntheticLightWorld.create(this.scenario, BenchmarkPositions.WORLD_RADIUS, BenchmarkPositions.WORLD_SEED);
+        this.positions = BenchmarkPositions.findSurfaceBlocks(this.world, 256);
+        this.states = new BlockState[this.positions.length];
+
+        for (int i = 0; i < this.positions.length; i++) {
+            this.states[i] = this.world.getBlockState(this.positions[i]);
+        }
+
+        this.air = Blocks.AIR.getDefaultState();
+    }
+
+    @Benchmark
+    public void removeAndRestoreShadowCaster() {
+        int i = this.nextPosition++ % this.positions.length;
+        BlockPos pos = this.positions[i];
+
+        this.world.setBlockState(pos, this.air);
+        this.world.runLightUpdates();
+
+        this.world.setBlockState(pos, this.states[i]);
+        this.world.runLightUpdates();
+    }
+}
@@ -0,0 +1,19 @@
+package me.jellysquid.mods.phosphor.benchmark.mixin;
+
+import me.jellysquid.mods.phosphor.benchmark.worldgen.WorldgenBenchmark;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.WorldGenerationProgressListener;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(MinecraftServer.class)
+public abstract class MixinMinecraftServer {
+    @Inject(method = "prepareStartRegion", at = @At("RETURN"))
+    private void runWorldgenBenchmark(WorldGenerationProgressListener listener, CallbackInfo ci) {
+        if (WorldgenBenchmark.ENABLED) {
+            WorldgenBenchmark.run((MinecraftServer) (Object) this);
+        }
+    }
+}
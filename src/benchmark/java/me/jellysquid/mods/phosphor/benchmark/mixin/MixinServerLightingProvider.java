@@ -0,0 +1,44 @@
+package me.jellysquid.mods.phosphor.benchmark.mixin;
+
+import me.jellysquid.mods.phosphor.benchmark.worldgen.WorldgenBenchmark;
+import net.minecraft.server.world.ServerLightingProvider;
+import net.minecraft.world.chunk.Chunk;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import java.util.concurrent.CompletableFuture;
+
+// Applied after Phosphor's own mixin, as setupLightmaps is added by it
+@Mixin(value = ServerLightingProvider.class, priority = 1100)
+public abstract class MixinServerLightingProvider {
+    @Inject(method = "setupLightmaps", at = @At("RETURN"), remap = false)
+    private void trackSetupLightmaps(Chunk chunk, CallbackInfoReturnable<CompletableFuture<Chunk>> cir) {
+        if (WorldgenBenchmark.ENABLED) {
+            WorldgenBenchmark.onSetupLightmaps(chunk.getPos(), cir.getReturnValue());
+        }
+    }
+
+    @Inject(method = "light", at = @At("RETURN"))
+    private void trackLight(Chunk chunk, boolean excludeBlocks, CallbackInfoReturnable<CompletableFuture<Chunk>> cir) {
+        if (WorldgenBenchmark.ENABLED) {
+            WorldgenBenchmark.onLight(chunk.getPos(), cir.getReturnValue());
+        }
+    }
+
+    @Inject(method = "runRemainingTasks", at = @At("HEAD"))
+    private void beginLightTasks(CallbackInfo ci) {
+        if (WorldgenBenchmark.ENABLED) {
+            WorldgenBenchmark.onLightTasksStarted();
+        }
+    }
+
+    @Inject(method = "runRemainingTasks", at = @At("RETURN"))
+    private void endLightTasks(CallbackInfo ci) {
+        if (WorldgenBenchmark.ENABLED) {
+            WorldgenBenchmark.onLightTasksFinished();
+        }
+    }
+}
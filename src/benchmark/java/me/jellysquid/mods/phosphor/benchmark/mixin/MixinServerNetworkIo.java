@@ -0,0 +1,23 @@
+package me.jellysquid.mods.phosphor.benchmark.mixin;
+
+import me.jellysquid.mods.phosphor.benchmark.worldgen.WorldgenBenchmark;
+import net.minecraft.server.ServerNetworkIo;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import java.net.InetAddress;
+
+@Mixin(ServerNetworkIo.class)
+public abstract class MixinServerNetworkIo {
+    /**
+     * The benchmark never accepts connections, so don't open a socket for it.
+     */
+    @Inject(method = "bind", at = @At("HEAD"), cancellable = true)
+    private void skipBind(InetAddress address, int port, CallbackInfo ci) {
+        if (WorldgenBenchmark.ENABLED) {
+            ci.cancel();
+        }
+    }
+}
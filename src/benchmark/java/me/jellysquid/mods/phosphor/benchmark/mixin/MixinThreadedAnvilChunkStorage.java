@@ -0,0 +1,24 @@
+package me.jellysquid.mods.phosphor.benchmark.mixin;
+
+import com.mojang.datafixers.util.Either;
+import me.jellysquid.mods.phosphor.benchmark.worldgen.WorldgenBenchmark;
+import net.minecraft.server.world.ChunkHolder;
+import net.minecraft.server.world.ThreadedAnvilChunkStorage;
+import net.minecraft.world.chunk.ChunkStatus;
+import net.minecraft.world.chunk.WorldChunk;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import java.util.concurrent.CompletableFuture;
+
+@Mixin(value = ThreadedAnvilChunkStorage.class, priority = 1100)
+public abstract class MixinThreadedAnvilChunkStorage {
+    @Inject(method = "makeChunkAccessible", at = @At("RETURN"))
+    private void trackNeighborWait(ChunkHolder holder, CallbackInfoReturnable<CompletableFuture<Either<WorldChunk, ChunkHolder.Unloaded>>> cir) {
+        if (WorldgenBenchmark.ENABLED) {
+            WorldgenBenchmark.onMakeChunkAccessible(holder.getPos(), holder.getFutureFor(ChunkStatus.FULL), cir.getReturnValue());
+        }
+    }
+}
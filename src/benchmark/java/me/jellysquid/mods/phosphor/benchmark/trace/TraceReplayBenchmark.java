@@ -0,0 +1,52 @@
+package me.jellysquid.mods.phosphor.benchmark.trace;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays the light update trace given by the {@code phosphor.benchmark.trace} system property from start to end. As
+ * the light engine can't be reset, every iteration replays the trace once into a fresh world. This benchmark is not
+ * part of the default suite and must be selected explicitly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class TraceReplayBenchmark {
+    private byte[] trace;
+    private TraceReplayer replayer;
+
+    @Setup(Level.Trial)
+    public void loadTrace() throws IOException {
+        String path = System.getProperty("phosphor.benchmark.trace");
+
+        if (path == null) {
+            throw new IllegalStateException("No trace file specified");
+        }
+
+        this.trace = TraceReplayer.load(new File(path));
+    }
+
+    @Setup(Level.Iteration)
+    public void createReplayer() throws IOException {
+        this.replayer = TraceReplayer.create(this.trace);
+    }
+
+    @Benchmark
+    public long replay() throws IOException {
+        return this.replayer.replay();
+    }
+}
@@ -0,0 +1,299 @@
+package me.jellysquid.mods.phosphor.benchmark.trace;
+
+import com.mojang.brigadier.StringReader;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import me.jellysquid.mods.phosphor.benchmark.world.SyntheticChunkProvider;
+import me.jellysquid.mods.phosphor.common.chunk.light.InitialLightingAccess;
+import me.jellysquid.mods.phosphor.common.trace.LightTraceFormat;
+import net.minecraft.Bootstrap;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.command.argument.BlockArgumentParser;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.LightType;
+import net.minecraft.world.chunk.ChunkNibbleArray;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.ProtoChunk;
+import net.minecraft.world.chunk.light.LightingProvider;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Replays a light update trace written by {@link me.jellysquid.mods.phosphor.common.trace.LightTraceRecorder} against
+ * a fresh lighting provider backed by a synthetic world. The block states captured in the trace are applied to the
+ * synthetic world at the same point they were observed, so the light engine performs the same work it did in game.
+ */
+public class TraceReplayer {
+    private static final Logger LOGGER = LogManager.getLogger("Phosphor Benchmark");
+
+    private final DataInputStream in;
+
+    private final SyntheticChunkProvider chunks = new SyntheticChunkProvider();
+    private final Int2ObjectOpenHashMap<BlockState> states = new Int2ObjectOpenHashMap<>();
+
+    private final LightingProvider lightingProvider;
+
+    private final String worldName;
+
+    private long lightUpdateCalls;
+    private long lightUpdateTime;
+
+    private TraceReplayer(DataInputStream in) throws IOException {
+        if (in.readInt() != LightTraceFormat.MAGIC) {
+            throw new IOException("Not a light trace");
+        }
+
+        int version = in.readInt();
+
+        if (version != LightTraceFormat.VERSION) {
+            throw new IOException("Unsupported trace version " + version);
+        }
+
+        boolean hasBlockLight = in.readBoolean();
+        boolean hasSkyLight = in.readBoolean();
+
+        this.in = in;
+        this.worldName = in.readUTF();
+        this.lightingProvider = new LightingProvider(this.chunks, hasBlockLight, hasSkyLight);
+    }
+
+    /**
+     * Reads the decompressed contents of a trace file into memory, so that it can be replayed repeatedly without
+     * measuring I/O.
+     */
+    public static byte[] load(File file) throws IOException {
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[1 << 16];
+            int len;
+
+            try {
+                while ((len = in.read(buf)) > 0) {
+                    out.write(buf, 0, len);
+                }
+            } catch (EOFException e) {
+                // The trace was not closed properly, use everything up to the last flush
+            }
+
+            return out.toByteArray();
+        }
+    }
+
+    public static TraceReplayer create(byte[] data) throws IOException {
+        Bootstrap.initialize();
+
+        return new TraceReplayer(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+    /**
+     * Replays the whole trace.
+     * @return The number of records which were replayed
+     */
+    public long replay() throws IOException {
+        long records = 0;
+
+        while (this.replayNext()) {
+            records++;
+        }
+
+        return records;
+    }
+
+    private boolean replayNext() throws IOException {
+        int opcode;
+
+        try {
+            opcode = this.in.readUnsignedByte();
+        } catch (EOFException e) {
+            return false;
+        }
+
+        switch (opcode) {
+            case LightTraceFormat.END:
+                return false;
+            case LightTraceFormat.DEFINE_STATE:
+                this.states.put(readVarInt(this.in), parseState(this.in.readUTF()));
+                break;
+            case LightTraceFormat.CHUNK_SNAPSHOT:
+                this.readChunkSnapshot();
+                break;
+            case LightTraceFormat.SET_BLOCK_STATE: {
+                BlockPos pos = BlockPos.fromLong(this.in.readLong());
+                BlockState state = this.getState(readVarInt(this.in));
+
+                this.getOrCreateChunk(pos.getX() >> 4, pos.getZ() >> 4);
+                this.chunks.setBlockState(pos.getX(), pos.getY(), pos.getZ(), state);
+                break;
+            }
+            case LightTraceFormat.CHECK_BLOCK:
+                this.lightingProvider.checkBlock(BlockPos.fromLong(this.in.readLong()));
+                break;
+            case LightTraceFormat.ADD_LIGHT_SOURCE:
+                this.lightingProvider.addLightSource(BlockPos.fromLong(this.in.readLong()), this.in.readUnsignedByte());
+                break;
+            case LightTraceFormat.SET_SECTION_STATUS:
+                this.lightingProvider.setSectionStatus(ChunkSectionPos.from(this.in.readLong()), this.in.readBoolean());
+                break;
+            case LightTraceFormat.ENQUEUE_SECTION_DATA: {
+                LightType type = LightType.values()[this.in.readUnsignedByte()];
+                ChunkSectionPos pos = ChunkSectionPos.from(this.in.readLong());
+                boolean nonEdge = this.in.readBoolean();
+                ChunkNibbleArray lightmap = null;
+
+                if (this.in.readBoolean()) {
+                    byte[] bytes = new byte[2048];
+                    this.in.readFully(bytes);
+
+                    lightmap = new ChunkNibbleArray(bytes);
+                }
+
+                this.lightingProvider.enqueueSectionData(type, pos, lightmap, nonEdge);
+                break;
+            }
+            case LightTraceFormat.SET_COLUMN_ENABLED:
+                this.lightingProvider.setColumnEnabled(new ChunkPos(this.in.readLong()), this.in.readBoolean());
+                break;
+            case LightTraceFormat.SET_RETAIN_DATA:
+                this.lightingProvider.setRetainData(new ChunkPos(this.in.readLong()), this.in.readBoolean());
+                break;
+            case LightTraceFormat.ENABLE_SOURCE_LIGHT:
+                ((InitialLightingAccess) this.lightingProvider).enableSourceLight(this.in.readLong());
+                break;
+            case LightTraceFormat.ENABLE_LIGHT_UPDATES:
+                ((InitialLightingAccess) this.lightingProvider).enableLightUpdates(this.in.readLong());
+                break;
+            case LightTraceFormat.DO_LIGHT_UPDATES: {
+                int maxUpdateCount = this.in.readInt();
+                boolean doSkylight = this.in.readBoolean();
+                boolean skipEdgeLightPropagation = this.in.readBoolean();
+
+                long start = System.nanoTime();
+
+                this.lightingProvider.doLightUpdates(maxUpdateCount, doSkylight, skipEdgeLightPropagation);
+
+                this.lightUpdateTime += System.nanoTime() - start;
+                this.lightUpdateCalls++;
+                break;
+            }
+            default:
+                throw new IOException("Unknown opcode " + opcode);
+        }
+
+        return true;
+    }
+
+    private void readChunkSnapshot() throws IOException {
+        int chunkX = this.in.readInt();
+        int chunkZ = this.in.readInt();
+
+        ChunkSection[] sections = this.getOrCreateChunk(chunkX, chunkZ).getSectionArray();
+
+        for (int i = 0; i < sections.length; i++) {
+            sections[i] = this.in.readBoolean() ? this.readSection(i) : null;
+        }
+    }
+
+    private ChunkSection readSection(int sectionY) throws IOException {
+        int paletteSize = readVarInt(this.in);
+        BlockState[] palette = new BlockState[paletteSize];
+
+        for (int i = 0; i < paletteSize; i++) {
+            palette[i] = this.getState(readVarInt(this.in));
+        }
+
+        ChunkSection section = new ChunkSection(sectionY << 4);
+
+        for (int i = 0; i < LightTraceFormat.SECTION_VOLUME; i++) {
+            int index;
+
+            if (paletteSize == 1) {
+                index = 0;
+            } else if (paletteSize <= 256) {
+                index = this.in.readUnsignedByte();
+            } else {
+                index = this.in.readUnsignedShort();
+            }
+
+            section.setBlockState(i & 15, i >> 8, (i >> 4) & 15, palette[index]);
+        }
+
+        return section;
+    }
+
+    private ProtoChunk getOrCreateChunk(int x, int z) {
+        ProtoChunk chunk = this.chunks.getProtoChunk(x, z);
+
+        if (chunk == null) {
+            chunk = this.chunks.createChunk(x, z);
+        }
+
+        return chunk;
+    }
+
+    private BlockState getState(int id) throws IOException {
+        BlockState state = this.states.get(id);
+
+        if (state == null) {
+            throw new IOException("Undefined block state id " + id);
+        }
+
+        return state;
+    }
+
+    private static BlockState parseState(String str) {
+        try {
+            return new BlockArgumentParser(new StringReader(str), false).parse(false).getBlockState();
+        } catch (CommandSyntaxException e) {
+            LOGGER.warn("Unknown block state {} in trace, replacing it with stone", str);
+
+            return Blocks.STONE.getDefaultState();
+        }
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+    public String getWorldName() {
+        return this.worldName;
+    }
+
+    public LightingProvider getLightingProvider() {
+        return this.lightingProvider;
+    }
+
+    public long getLightUpdateCalls() {
+        return this.lightUpdateCalls;
+    }
+
+    /**
+     * @return The total time spent within {@link LightingProvider#doLightUpdates(int, boolean, boolean)}, in nanoseconds
+     */
+    public long getLightUpdateTime() {
+        return this.lightUpdateTime;
+    }
+}
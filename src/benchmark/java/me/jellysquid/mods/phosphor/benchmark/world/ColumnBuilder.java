@@ -0,0 +1,169 @@
+package me.jellysquid.mods.phosphor.benchmark.world;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.world.chunk.ChunkSection;
+
+import java.util.Random;
+
+/**
+ * Builds the sections of a single chunk column from a set of terrain features, which can be combined freely to create
+ * both realistic and adversarial inputs for the light engine. All coordinates are local to the column, and features
+ * never extend into neighbouring columns, so columns can be built independently of each other.
+ *
+ * The resulting array has the same layout as {@link net.minecraft.world.chunk.Chunk#getSectionArray()}, i.e. sections
+ * which do not contain any blocks are null, and can be handed to {@link SyntheticChunkProvider#createChunk(int, int, ChunkSection[])}.
+ * Block states are only resolved when a feature is added, as the registries must be bootstrapped before.
+ */
+public class ColumnBuilder {
+    private final ChunkSection[] sections = new ChunkSection[16];
+
+    public ColumnBuilder set(int x, int y, int z, BlockState state) {
+        ChunkSection section = this.sections[y >> 4];
+
+        if (section == null) {
+            if (state.isAir()) {
+                return this;
+            }
+
+            this.sections[y >> 4] = section = new ChunkSection(y & ~15);
+        }
+
+        section.setBlockState(x, y & 15, z, state);
+
+        return this;
+    }
+
+    /**
+     * Fills the box between the given corners (inclusive) with a block state.
+     */
+    public ColumnBuilder fill(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, BlockState state) {
+        for (int y = minY; y <= maxY; y++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int x = minX; x <= maxX; x++) {
+                    this.set(x, y, z, state);
+                }
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Fills whole horizontal layers of the column with a block state.
+     */
+    public ColumnBuilder layers(int minY, int maxY, BlockState state) {
+        return this.fill(0, minY, 0, 15, maxY, 15, state);
+    }
+
+    /**
+     * A flat stone floor topped with grass, as found in superflat worlds.
+     */
+    public ColumnBuilder ground(int surfaceY) {
+        this.layers(0, surfaceY - 1, Blocks.STONE.getDefaultState());
+
+        return this.layers(surfaceY, surfaceY, Blocks.GRASS_BLOCK.getDefaultState());
+    }
+
+    /**
+     * A stone sea floor covered with water up to the given sea level. Water dims sky light with every block it passes,
+     * so that no part of the sea floor receives full sky light.
+     */
+    public ColumnBuilder ocean(int floorY, int seaLevel) {
+        this.layers(0, floorY - 1, Blocks.STONE.getDefaultState());
+        this.layers(floorY, floorY, Blocks.SAND.getDefaultState());
+
+        return this.layers(floorY + 1, seaLevel, Blocks.WATER.getDefaultState());
+    }
+
+    /**
+     * Carves spherical caves into the column, the bottom of some of which is filled with lava. Caves are clipped at the
+     * column borders.
+     */
+    public ColumnBuilder caves(Random random, int count, int minY, int maxY) {
+        for (int i = 0; i < count; i++) {
+            int cx = random.nextInt(16);
+            int cy = minY + random.nextInt(maxY - minY + 1);
+            int cz = random.nextInt(16);
+            int r = 3 + random.nextInt(4);
+
+            BlockState floor = random.nextInt(3) == 0 ? Blocks.LAVA.getDefaultState() : Blocks.AIR.getDefaultState();
+
+            for (int x = Math.max(0, cx - r); x <= Math.min(15, cx + r); x++) {
+                for (int y = Math.max(0, cy - r); y <= Math.min(255, cy + r); y++) {
+                    for (int z = Math.max(0, cz - r); z <= Math.min(15, cz + r); z++) {
+                        int dx = x - cx;
+                        int dy = y - cy;
+                        int dz = z - cz;
+
+                        if (dx * dx + dy * dy + dz * dz <= r * r) {
+                            this.set(x, y, z, dy < -r / 2 ? floor : Blocks.AIR.getDefaultState());
+                        }
+                    }
+                }
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Stacks stone platforms of the given thickness above each other, leaving random holes in them for sky light to
+     * fall through.
+     */
+    public ColumnBuilder platforms(Random random, int count, int baseY, int spacing, int thickness) {
+        for (int layer = 0; layer < count; layer++) {
+            int minY = baseY + (layer * spacing) + random.nextInt(8);
+
+            for (int x = 0; x < 16; x++) {
+                for (int z = 0; z < 16; z++) {
+                    if (random.nextInt(12) == 0) {
+                        continue;
+                    }
+
+                    this.fill(x, minY, z, x, minY + thickness - 1, z, Blocks.STONE.getDefaultState());
+                }
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * A glass shell covering the whole column above the given floor, with a light source hanging from its roof. Glass
+     * does not block any light, but is not air either, which defeats shortcuts that only apply to empty sections.
+     */
+    public ColumnBuilder greenhouse(int floorY, int height) {
+        int roofY = floorY + height;
+
+        this.fill(0, floorY, 0, 15, roofY, 15, Blocks.GLASS.getDefaultState());
+        this.fill(1, floorY, 1, 14, roofY - 1, 14, Blocks.AIR.getDefaultState());
+
+        return this.set(8, roofY - 1, 8, Blocks.GLOWSTONE.getDefaultState());
+    }
+
+    /**
+     * Places light sources in a regular grid on a single layer.
+     */
+    public ColumnBuilder lampGrid(int y, int spacing, BlockState lamp) {
+        for (int x = 0; x < 16; x += spacing) {
+            for (int z = 0; z < 16; z += spacing) {
+                this.set(x, y, z, lamp);
+            }
+        }
+
+        return this;
+    }
+
+    public ChunkSection[] build() {
+        ChunkSection[] sections = new ChunkSection[this.sections.length];
+
+        for (int i = 0; i < sections.length; i++) {
+            if (!ChunkSection.isEmpty(this.sections[i])) {
+                sections[i] = this.sections[i];
+            }
+        }
+
+        return sections;
+    }
+}
@@ -0,0 +1,81 @@
+package me.jellysquid.mods.phosphor.benchmark.world;
+
+import net.minecraft.block.Blocks;
+
+import java.util.Random;
+
+/**
+ * The world layouts used by the light engine benchmarks. Each scenario deterministically builds a chunk column from the
+ * features of {@link ColumnBuilder}, so that results are comparable between runs and releases.
+ */
+public enum Scenario {
+    /**
+     * A flat stone floor covered with a grid of torches, as found in lit-up bases and farms.
+     */
+    TORCH_GRID {
+        @Override
+        public void generate(ColumnBuilder column, Random random) {
+            column.layers(0, 63, Blocks.STONE.getDefaultState());
+            column.lampGrid(64, 4, Blocks.TORCH.getDefaultState());
+        }
+    },
+    /**
+     * Solid stone with randomly carved spherical caves, some of them holding a lava pool.
+     */
+    CAVES {
+        @Override
+        public void generate(ColumnBuilder column, Random random) {
+            column.layers(0, 95, Blocks.STONE.getDefaultState());
+            column.caves(random, 6, 8, 87);
+        }
+    },
+    /**
+     * Flat terrain with nothing above it, where the sky light is trivial for most of the column.
+     */
+    OPEN_SKY {
+        @Override
+        public void generate(ColumnBuilder column, Random random) {
+            column.ground(63);
+        }
+    },
+    /**
+     * Stacked stone platforms floating above empty space, which cast large shadows for the sky light engine.
+     */
+    FLOATING_ISLANDS {
+        @Override
+        public void generate(ColumnBuilder column, Random random) {
+            column.platforms(random, 3, 80, 40, 4);
+        }
+    },
+    /**
+     * A deep ocean, where sky light is dimmed gradually by the water instead of being blocked.
+     */
+    OCEAN {
+        @Override
+        public void generate(ColumnBuilder column, Random random) {
+            column.ocean(30, 62);
+        }
+    },
+    /**
+     * Lit glass houses covering the ground, which are transparent to light but occupy sections above the terrain.
+     */
+    GREENHOUSES {
+        @Override
+        public void generate(ColumnBuilder column, Random random) {
+            column.ground(63);
+            column.greenhouse(64, 8);
+        }
+    },
+    /**
+     * Completely filled stone sections up to a high surface, where almost every lightmap is dark and every light
+     * update stops right at its source.
+     */
+    FULL_STONE {
+        @Override
+        public void generate(ColumnBuilder column, Random random) {
+            column.layers(0, 127, Blocks.STONE.getDefaultState());
+        }
+    };
+
+    public abstract void generate(ColumnBuilder column, Random random);
+}
@@ -0,0 +1,113 @@
+package me.jellysquid.mods.phosphor.benchmark.world;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.BlockView;
+import net.minecraft.world.EmptyBlockView;
+import net.minecraft.world.LightType;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkProvider;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.ProtoChunk;
+import net.minecraft.world.chunk.UpgradeData;
+
+/**
+ * A minimal in-memory chunk provider which serves chunks without a backing world. The light engine only reads block
+ * states through {@link ChunkProvider#getChunk(int, int)}, so this is sufficient to drive it outside of a server.
+ */
+public class SyntheticChunkProvider implements ChunkProvider {
+    private final Long2ObjectOpenHashMap<ProtoChunk> chunks = new Long2ObjectOpenHashMap<>();
+
+    private long lightUpdateNotifications;
+
+    public ProtoChunk createChunk(int x, int z) {
+        ProtoChunk chunk = new ProtoChunk(new ChunkPos(x, z), UpgradeData.NO_UPGRADE_DATA);
+
+        this.chunks.put(ChunkPos.toLong(x, z), chunk);
+
+        return chunk;
+    }
+
+    /**
+     * Creates a chunk holding the given sections, e.g. those built with a {@link ColumnBuilder}.
+     */
+    public ProtoChunk createChunk(int x, int z, ChunkSection[] sections) {
+        ProtoChunk chunk = this.createChunk(x, z);
+
+        System.arraycopy(sections, 0, chunk.getSectionArray(), 0, sections.length);
+
+        return chunk;
+    }
+
+    public ProtoChunk getProtoChunk(int x, int z) {
+        return this.chunks.get(ChunkPos.toLong(x, z));
+    }
+
+    @Override
+    public BlockView getChunk(int x, int z) {
+        return this.getProtoChunk(x, z);
+    }
+
+    @Override
+    public BlockView getWorld() {
+        return EmptyBlockView.INSTANCE;
+    }
+
+    @Override
+    public void onLightUpdate(LightType type, ChunkSectionPos pos) {
+        this.lightUpdateNotifications++;
+    }
+
+    /**
+     * Returns the number of times the light engine has notified this provider about a changed section.
+     */
+    public long getLightUpdateNotifications() {
+        return this.lightUpdateNotifications;
+    }
+
+    public BlockState getBlockState(int x, int y, int z) {
+        ProtoChunk chunk = this.getProtoChunk(x >> 4, z >> 4);
+
+        if (chunk == null || World.isHeightInvalid(y)) {
+            return Blocks.AIR.getDefaultState();
+        }
+
+        ChunkSection section = chunk.getSectionArray()[y >> 4];
+
+        if (ChunkSection.isEmpty(section)) {
+            return Blocks.AIR.getDefaultState();
+        }
+
+        return section.getBlockState(x & 15, y & 15, z & 15);
+    }
+
+    public boolean isSectionEmpty(int x, int y, int z) {
+        ProtoChunk chunk = this.getProtoChunk(x >> 4, z >> 4);
+
+        return chunk == null || World.isHeightInvalid(y) || ChunkSection.isEmpty(chunk.getSectionArray()[y >> 4]);
+    }
+
+    /**
+     * Replaces the block state at the given position, creating the containing section if necessary.
+     * @return The previous block state at the position
+     */
+    public BlockState setBlockState(int x, int y, int z, BlockState state) {
+        ProtoChunk chunk = this.getProtoChunk(x >> 4, z >> 4);
+
+        if (chunk == null) {
+            throw new IllegalStateException("Chunk is not loaded");
+        }
+
+        ChunkSection[] sections = chunk.getSectionArray();
+        ChunkSection section = sections[y >> 4];
+
+        if (section == null) {
+            sections[y >> 4] = section = new ChunkSection(y & ~15);
+        }
+
+        return section.setBlockState(x & 15, y & 15, z & 15, state);
+    }
+}
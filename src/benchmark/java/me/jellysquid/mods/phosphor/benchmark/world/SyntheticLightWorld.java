@@ -0,0 +1,209 @@
+package me.jellysquid.mods.phosphor.benchmark.world;
+
+import me.jellysquid.mods.phosphor.common.chunk.light.InitialLightingAccess;
+import net.minecraft.Bootstrap;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.LightType;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.ProtoChunk;
+import net.minecraft.world.chunk.light.ChunkLightProvider;
+import net.minecraft.world.chunk.light.LightingProvider;
+
+import java.util.Random;
+
+/**
+ * A square of synthetic chunk columns around the origin with a lighting provider attached to it. Initial lighting is
+ * performed in the same order the server uses, see {@code MixinServerLightingProvider}.
+ */
+public class SyntheticLightWorld {
+    private final SyntheticChunkProvider chunks = new SyntheticChunkProvider();
+    private final LightingProvider lightingProvider;
+
+    private final int radius;
+
+    private SyntheticLightWorld(int radius) {
+        this.radius = radius;
+        this.lightingProvider = new LightingProvider(this.chunks, true, true);
+    }
+
+    /**
+     * Creates a world of (2 * radius + 1)^2 chunk columns filled using the given scenario and performs the initial
+     * lighting for it.
+     */
+    public static SyntheticLightWorld create(Scenario scenario, int radius, long seed) {
+        Bootstrap.initialize();
+
+        SyntheticLightWorld world = new SyntheticLightWorld(radius);
+
+        for (int x = -radius; x <= radius; x++) {
+            for (int z = -radius; z <= radius; z++) {
+                ColumnBuilder column = new ColumnBuilder();
+                scenario.generate(column, new Random(seed ^ ChunkPos.toLong(x, z)));
+
+                world.chunks.createChunk(x, z, column.build());
+            }
+        }
+
+        world.initializeLight();
+
+        return world;
+    }
+
+    private void initializeLight() {
+        for (int x = -this.radius; x <= this.radius; x++) {
+            for (int z = -this.radius; z <= this.radius; z++) {
+                this.setupLightmaps(x, z);
+            }
+        }
+
+        this.runLightUpdates();
+
+        for (int x = -this.radius; x <= this.radius; x++) {
+            for (int z = -this.radius; z <= this.radius; z++) {
+                this.lightColumn(x, z);
+            }
+        }
+
+        this.runLightUpdates();
+    }
+
+    /**
+     * Enables lighting for a single chunk column and performs its initial lighting, in the same way as a chunk passing
+     * through the light stage on the server.
+     */
+    public void enableColumn(int x, int z) {
+        this.setupLightmaps(x, z);
+        this.runLightUpdates();
+
+        this.lightColumn(x, z);
+        this.runLightUpdates();
+    }
+
+    /**
+     * Disables lighting for a single chunk column and drops its light data, in the same way as the server does when
+     * unloading a chunk. The block states of the column are kept, so it can be enabled again.
+     */
+    public void disableColumn(int x, int z) {
+        ChunkPos pos = new ChunkPos(x, z);
+
+        // [VanillaCopy] ServerLightingProvider#updateChunkStatus
+        this.lightingProvider.setRetainData(pos, false);
+        this.lightingProvider.setColumnEnabled(pos, false);
+
+        for (int i = -1; i < 17; i++) {
+            this.lightingProvider.enqueueSectionData(LightType.BLOCK, ChunkSectionPos.from(pos, i), null, true);
+            this.lightingProvider.enqueueSectionData(LightType.SKY, ChunkSectionPos.from(pos, i), null, true);
+        }
+
+        for (int i = 0; i < 16; i++) {
+            this.lightingProvider.setSectionStatus(ChunkSectionPos.from(pos, i), true);
+        }
+
+        this.runLightUpdates();
+    }
+
+    private void setupLightmaps(int x, int z) {
+        ChunkPos pos = new ChunkPos(x, z);
+        ChunkSection[] sections = this.chunks.getProtoChunk(x, z).getSectionArray();
+
+        for (int i = 0; i < sections.length; i++) {
+            if (!ChunkSection.isEmpty(sections[i])) {
+                this.lightingProvider.setSectionStatus(ChunkSectionPos.from(pos, i), false);
+            }
+        }
+
+        ((InitialLightingAccess) this.lightingProvider).enableLightUpdates(getColumnKey(x, z));
+    }
+
+    private void lightColumn(int x, int z) {
+        ((InitialLightingAccess) this.lightingProvider).enableSourceLight(getColumnKey(x, z));
+
+        this.addLightSources(this.chunks.getProtoChunk(x, z));
+    }
+
+    private void addLightSources(ProtoChunk chunk) {
+        ChunkSection[] sections = chunk.getSectionArray();
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+
+        for (int i = 0; i < sections.length; i++) {
+            ChunkSection section = sections[i];
+
+            if (ChunkSection.isEmpty(section)) {
+                continue;
+            }
+
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        int luminance = section.getBlockState(x, y, z).getLuminance();
+
+                        if (luminance > 0) {
+                            pos.set(chunk.getPos().getStartX() + x, (i << 4) + y, chunk.getPos().getStartZ() + z);
+
+                            this.lightingProvider.addLightSource(pos, luminance);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static long getColumnKey(int x, int z) {
+        return ChunkSectionPos.withZeroY(ChunkSectionPos.asLong(x, 0, z));
+    }
+
+    /**
+     * Changes the block at the given position and notifies the light engine, without processing the resulting updates.
+     */
+    public void setBlockState(BlockPos pos, BlockState state) {
+        boolean wasEmpty = this.chunks.isSectionEmpty(pos.getX(), pos.getY(), pos.getZ());
+        BlockState prev = this.chunks.setBlockState(pos.getX(), pos.getY(), pos.getZ(), state);
+
+        if (prev != state) {
+            boolean isEmpty = this.chunks.isSectionEmpty(pos.getX(), pos.getY(), pos.getZ());
+
+            // [VanillaCopy] WorldChunk#setBlockState
+            if (wasEmpty != isEmpty) {
+                this.lightingProvider.setSectionStatus(ChunkSectionPos.from(pos), isEmpty);
+            }
+
+            this.lightingProvider.checkBlock(pos);
+        }
+    }
+
+    public BlockState getBlockState(BlockPos pos) {
+        return this.chunks.getBlockState(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    /**
+     * Processes all pending light updates in the same way the server's light thread does.
+     */
+    public void runLightUpdates() {
+        while (this.lightingProvider.hasUpdates()) {
+            this.lightingProvider.doLightUpdates(Integer.MAX_VALUE, true, true);
+        }
+    }
+
+    public int getLightLevel(LightType type, BlockPos pos) {
+        return this.lightingProvider.get(type).getLightLevel(pos);
+    }
+
+    public ChunkLightProvider<?, ?> getLightProvider(LightType type) {
+        return (ChunkLightProvider<?, ?>) this.lightingProvider.get(type);
+    }
+
+    public LightingProvider getLightingProvider() {
+        return this.lightingProvider;
+    }
+
+    public SyntheticChunkProvider getChunks() {
+        return this.chunks;
+    }
+
+    public int getRadius() {
+        return this.radius;
+    }
+}
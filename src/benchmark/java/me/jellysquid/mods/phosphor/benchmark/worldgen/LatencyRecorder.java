@@ -0,0 +1,42 @@
+package me.jellysquid.mods.phosphor.benchmark.worldgen;
+
+import com.google.gson.JsonObject;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.util.Arrays;
+
+/**
+ * Collects latency samples from any thread and summarizes them as percentiles.
+ */
+public class LatencyRecorder {
+    private final LongArrayList samples = new LongArrayList();
+
+    public synchronized void record(long nanos) {
+        this.samples.add(nanos);
+    }
+
+    public synchronized JsonObject summarize() {
+        long[] sorted = this.samples.toLongArray();
+        Arrays.sort(sorted);
+
+        JsonObject obj = new JsonObject();
+        obj.addProperty("count", sorted.length);
+
+        if (sorted.length > 0) {
+            obj.addProperty("p50Millis", toMillis(percentile(sorted, 0.50D)));
+            obj.addProperty("p90Millis", toMillis(percentile(sorted, 0.90D)));
+            obj.addProperty("p99Millis", toMillis(percentile(sorted, 0.99D)));
+            obj.addProperty("maxMillis", toMillis(sorted[sorted.length - 1]));
+        }
+
+        return obj;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0D;
+    }
+}
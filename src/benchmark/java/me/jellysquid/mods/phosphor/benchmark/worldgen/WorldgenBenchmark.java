@@ -0,0 +1,181 @@
+package me.jellysquid.mods.phosphor.benchmark.worldgen;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ChunkTicketType;
+import net.minecraft.server.world.ServerChunkManager;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.ChunkPos;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generates a square of chunks far away from spawn after the server has prepared its spawn region, and reports how
+ * long it took for the chunks to pass through the whole generation pipeline (including lighting). The hooks feeding
+ * this harness live in the benchmark mixins and are only active if the harness is enabled.
+ *
+ * The size of the square and its location are controlled by the {@code phosphor.benchmark.worldgen.radius} and
+ * {@code phosphor.benchmark.worldgen.center} system properties. The generated area is (2 * radius - 1)^2 chunks, as
+ * only chunks which become fully accessible are counted.
+ */
+public class WorldgenBenchmark {
+    private static final Logger LOGGER = LogManager.getLogger("Phosphor Benchmark");
+
+    private static final ChunkTicketType<ChunkPos> TICKET_TYPE = ChunkTicketType.create("phosphor_benchmark", Comparator.comparingLong(ChunkPos::toLong));
+
+    private static final long TIMEOUT = TimeUnit.MINUTES.toNanos(60);
+
+    public static final boolean ENABLED = "worldgen".equals(System.getProperty("phosphor.benchmark.mode"));
+
+    private static final int RADIUS = Integer.getInteger("phosphor.benchmark.worldgen.radius", 16);
+    private static final int CENTER = Integer.getInteger("phosphor.benchmark.worldgen.center", 4096);
+
+    private static final LatencyRecorder SETUP_LIGHTMAPS_LATENCY = new LatencyRecorder();
+    private static final LatencyRecorder LIGHT_LATENCY = new LatencyRecorder();
+    private static final LatencyRecorder NEIGHBOR_WAIT_LATENCY = new LatencyRecorder();
+
+    private static volatile boolean running;
+
+    // Only accessed from the light thread
+    private static long lightThreadBusyTime;
+    private static long lightTaskStart;
+
+    public static void run(MinecraftServer server) {
+        ServerWorld world = server.getOverworld();
+        ServerChunkManager chunkManager = world.getChunkManager();
+
+        int size = (2 * RADIUS) - 1;
+        int target = chunkManager.getTotalChunksLoadedCount() + (size * size);
+
+        LOGGER.info("Generating {}x{} chunks around chunk [{}, {}]", size, size, CENTER, CENTER);
+
+        // Use the same batch size as is used for preparing the spawn region
+        chunkManager.getLightingProvider().setTaskBatchSize(500);
+
+        running = true;
+
+        long start = System.nanoTime();
+
+        chunkManager.addTicket(TICKET_TYPE, new ChunkPos(CENTER, CENTER), RADIUS, new ChunkPos(CENTER, CENTER));
+
+        while (chunkManager.getTotalChunksLoadedCount() < target) {
+            if (System.nanoTime() - start > TIMEOUT) {
+                throw new IllegalStateException("Timed out while waiting for chunks to generate");
+            }
+
+            if (!chunkManager.executeQueuedTasks()) {
+                LockSupport.parkNanos("waiting for chunks", 1_000_000L);
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        running = false;
+
+        chunkManager.getLightingProvider().setTaskBatchSize(5);
+
+        writeReport(createReport(size * size, elapsed, server.getSaveProperties().getGeneratorOptions().getSeed()));
+
+        server.stop(false);
+    }
+
+    private static JsonObject createReport(int chunks, long elapsed, long seed) {
+        JsonObject latencies = new JsonObject();
+        latencies.add("setupLightmaps", SETUP_LIGHTMAPS_LATENCY.summarize());
+        latencies.add("light", LIGHT_LATENCY.summarize());
+        latencies.add("neighborWait", NEIGHBOR_WAIT_LATENCY.summarize());
+
+        long busyTime;
+
+        synchronized (WorldgenBenchmark.class) {
+            busyTime = lightThreadBusyTime;
+        }
+
+        JsonObject report = new JsonObject();
+        report.addProperty("seed", seed);
+        report.addProperty("radius", RADIUS);
+        report.addProperty("chunks", chunks);
+        report.addProperty("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(elapsed));
+        report.addProperty("chunksPerSecond", chunks / (elapsed / 1_000_000_000.0D));
+        report.addProperty("lightThreadBusyMillis", TimeUnit.NANOSECONDS.toMillis(busyTime));
+        report.addProperty("lightThreadUtilization", (double) busyTime / elapsed);
+        report.add("latencies", latencies);
+
+        return report;
+    }
+
+    private static void writeReport(JsonObject report) {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        String json = gson.toJson(report);
+
+        LOGGER.info("World generation benchmark finished:\n{}", json);
+
+        File outputDir = new File(System.getProperty("phosphor.benchmark.output", "."));
+        outputDir.mkdirs();
+
+        try (Writer writer = new FileWriter(new File(outputDir, "worldgen-report.json"))) {
+            writer.write(json);
+        } catch (IOException e) {
+            LOGGER.error("Could not write benchmark report", e);
+        }
+    }
+
+    private static boolean isTracked(ChunkPos pos) {
+        return running && Math.abs(pos.x - CENTER) < RADIUS + 2 && Math.abs(pos.z - CENTER) < RADIUS + 2;
+    }
+
+    /**
+     * Measures the time from when a chunk is submitted to a stage until the future returned for it completes.
+     */
+    private static void track(ChunkPos pos, CompletableFuture<?> future, LatencyRecorder recorder) {
+        if (isTracked(pos)) {
+            long start = System.nanoTime();
+
+            future.thenRun(() -> recorder.record(System.nanoTime() - start));
+        }
+    }
+
+    public static void onSetupLightmaps(ChunkPos pos, CompletableFuture<?> future) {
+        track(pos, future, SETUP_LIGHTMAPS_LATENCY);
+    }
+
+    public static void onLight(ChunkPos pos, CompletableFuture<?> future) {
+        track(pos, future, LIGHT_LATENCY);
+    }
+
+    /**
+     * Measures the time between a chunk being fully generated and it becoming accessible, which is spent waiting for
+     * its neighbours to be generated.
+     */
+    public static void onMakeChunkAccessible(ChunkPos pos, CompletableFuture<?> fullFuture, CompletableFuture<?> accessibleFuture) {
+        if (isTracked(pos)) {
+            long[] fullTime = new long[] { -1L };
+
+            fullFuture.thenRun(() -> fullTime[0] = System.nanoTime())
+                    .thenAcceptBoth(accessibleFuture, (a, b) -> NEIGHBOR_WAIT_LATENCY.record(System.nanoTime() - fullTime[0]));
+        }
+    }
+
+    public static void onLightTasksStarted() {
+        lightTaskStart = System.nanoTime();
+    }
+
+    public static void onLightTasksFinished() {
+        if (running) {
+            synchronized (WorldgenBenchmark.class) {
+                lightThreadBusyTime += System.nanoTime() - lightTaskStart;
+            }
+        }
+    }
+}
@@ -2,4 +2,9 @@ package me.jellysquid.mods.phosphor.common.block;
 
 public interface BlockStateLightInfoAccess {
     BlockStateLightInfo getLightInfo();
+
+    /**
+     * Returns the packed light properties of this state, see {@link BlockStateLightProperties}.
+     */
+    int getLightProperties();
 }
@@ -0,0 +1,86 @@
+package me.jellysquid.mods.phosphor.common.block;
+
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.shape.VoxelShape;
+import net.minecraft.util.shape.VoxelShapes;
+
+/**
+ * Packs the light properties of a block state into a single int, so that the light engines can read them without
+ * following the state to its shape cache and block. The properties are computed whenever the shape cache of a state is
+ * (re-)initialized and stored on the state itself, see {@link BlockStateLightInfoAccess#getLightProperties()}.
+ *
+ * Layout:
+ * - Bits 0-3: The amount of light subtracted by the state
+ * - Bit 4: Whether the state has sided transparency
+ * - Bit 5: Whether the properties are known. States without a shape cache, e.g. with dynamic bounds, need to be queried
+ * at their position instead
+ * - Bits 6-17: The occlusion class of the extruded face in each direction, with 2 bits per direction ordinal
+ */
+public class BlockStateLightProperties {
+    public static final int FACE_EMPTY = 0;
+    public static final int FACE_FULL = 1;
+    public static final int FACE_PARTIAL = 2;
+
+    private static final int SIDED_TRANSPARENCY = 1 << 4;
+    private static final int KNOWN = 1 << 5;
+    private static final int FACES_SHIFT = 6;
+
+    /**
+     * Packs the properties of a state with the given shape cache, which may be null.
+     */
+    public static int pack(final BlockStateLightInfo info, final boolean sidedTransparency) {
+        if (info == null) {
+            return 0;
+        }
+
+        int properties = KNOWN | (info.getLightSubtracted() & 15);
+
+        if (sidedTransparency) {
+            properties |= SIDED_TRANSPARENCY;
+        }
+
+        final VoxelShape[] extrudedFaces = info.getExtrudedFaces();
+
+        if (extrudedFaces != null) {
+            for (final Direction dir : Direction.values()) {
+                properties |= getFaceClass(extrudedFaces[dir.ordinal()]) << getFaceShift(dir);
+            }
+        }
+
+        return properties;
+    }
+
+    public static boolean isKnown(final int properties) {
+        return (properties & KNOWN) != 0;
+    }
+
+    public static int getLightSubtracted(final int properties) {
+        return properties & 15;
+    }
+
+    public static boolean hasSidedTransparency(final int properties) {
+        return (properties & SIDED_TRANSPARENCY) != 0;
+    }
+
+    /**
+     * Returns whether the extruded face in the given direction is empty, a full cube or anything else, in which case it
+     * needs to be looked up in the shape cache.
+     */
+    public static int getFaceClass(final int properties, final Direction dir) {
+        return (properties >>> getFaceShift(dir)) & 3;
+    }
+
+    private static int getFaceClass(final VoxelShape shape) {
+        if (shape == VoxelShapes.empty()) {
+            return FACE_EMPTY;
+        } else if (shape == VoxelShapes.fullCube()) {
+            return FACE_FULL;
+        }
+
+        return FACE_PARTIAL;
+    }
+
+    private static int getFaceShift(final Direction dir) {
+        return FACES_SHIFT + (dir.ordinal() << 1);
+    }
+}
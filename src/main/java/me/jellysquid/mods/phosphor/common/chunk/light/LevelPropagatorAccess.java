@@ -1,7 +1,36 @@
 package me.jellysquid.mods.phosphor.common.chunk.light;
 
+import it.unimi.dsi.fastutil.longs.Long2ByteMap;
+import me.jellysquid.mods.phosphor.common.util.collections.LevelBucketQueue;
+
 public interface LevelPropagatorAccess {
     void invokePropagateLevel(long sourceId, long targetId, int level, boolean decrease);
 
+    int invokeRecalculateLevel(long id, long excludedId, int maxLevel);
+
     void checkForUpdates();
+
+    /**
+     * Returns the number of queued updates. This may be called from any thread, in which case the result is only an
+     * estimate.
+     */
+    int countPendingUpdates();
+
+    /**
+     * Replaces the map holding the pending level of each queued update. This may only be called while no updates are
+     * queued, e.g. right after construction.
+     */
+    void setPendingUpdateMap(Long2ByteMap map);
+
+    /**
+     * Replaces the per-level sets of queued updates with a bucket queue, which must be backed by the map installed with
+     * {@link #setPendingUpdateMap(Long2ByteMap)}. This may only be called while no updates are queued.
+     */
+    void setPendingUpdateQueue(LevelBucketQueue queue);
+
+    /**
+     * Advances the minimum pending level past levels which became empty since updates have been removed from the
+     * installed bucket queue directly.
+     */
+    void updateMinPendingLevel();
 }
@@ -5,4 +5,9 @@ public interface LightProviderUpdateTracker {
      * Discards all pending updates for the specified chunk section.
      */
     void cancelUpdatesForChunk(long sectionPos);
+
+    /**
+     * Discards all pending updates for the specified chunk column at once.
+     */
+    void cancelUpdatesForColumn(long chunkPos);
 }
@@ -1,5 +1,6 @@
 package me.jellysquid.mods.phosphor.common.chunk.light;
 
+import me.jellysquid.mods.phosphor.common.metrics.LightEngineMetrics;
 import net.minecraft.world.chunk.ChunkNibbleArray;
 import net.minecraft.world.chunk.light.ChunkLightProvider;
 
@@ -20,4 +21,27 @@ public interface LightStorageAccess {
     void disableChunkLight(long chunkPos, ChunkLightProvider<?, ?> lightProvider);
 
     void invokeSetColumnEnabled(long chunkPos, boolean enabled);
+
+    /**
+     * Sets the metrics of the light engine owning this storage. This must be called before any light updates are
+     * processed.
+     */
+    void setMetrics(LightEngineMetrics metrics);
+
+    /**
+     * Returns the number of readonly lightmaps held for vanilla compatibility. This may be called from any thread,
+     * in which case the result is only an estimate.
+     */
+    int countReadonlyLightmaps();
+
+    /**
+     * Returns the number of lightmap lookups of the owned storage which were answered by its cache. This may be called
+     * from any thread, in which case the result is only an estimate.
+     */
+    long countLightmapCacheHits();
+
+    /**
+     * Returns the number of lightmap lookups of the owned storage which missed its cache.
+     */
+    long countLightmapCacheMisses();
 }
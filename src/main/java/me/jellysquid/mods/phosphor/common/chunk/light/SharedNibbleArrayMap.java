@@ -1,6 +1,6 @@
 package me.jellysquid.mods.phosphor.common.chunk.light;
 
-import me.jellysquid.mods.phosphor.common.util.collections.DoubleBufferedLong2ObjectHashMap;
+import me.jellysquid.mods.phosphor.common.util.collections.DoubleBufferedLong2ObjectMap;
 import net.minecraft.world.chunk.ChunkNibbleArray;
 
 public interface SharedNibbleArrayMap {
@@ -19,5 +19,33 @@ public interface SharedNibbleArrayMap {
     /**
      * Returns the queue of pending changes for this map.
      */
-    DoubleBufferedLong2ObjectHashMap<ChunkNibbleArray> getUpdateQueue();
+    DoubleBufferedLong2ObjectMap<ChunkNibbleArray> getUpdateQueue();
+
+    /**
+     * Returns a mask of the sections of the given chunk column which hold a lightmap in the owned view of this map. Bit
+     * <code>y + 1</code> corresponds to the section at height <code>y</code>.
+     */
+    int getSectionMask(long columnPos);
+
+    /**
+     * Returns a mask like {@link #getSectionMask(long)}, but only of the lightmaps which are not readonly.
+     */
+    int getLightmapMask(long columnPos);
+
+    /**
+     * Returns the number of lookups which were answered by the lightmap cache of this map. This is always 0 unless
+     * {@link me.jellysquid.mods.phosphor.common.config.PhosphorConfig#LIGHTMAP_CACHE_STATISTICS} is set.
+     */
+    long getCacheHits();
+
+    /**
+     * Returns the number of lookups which missed the lightmap cache of this map while it was enabled. This is always 0
+     * unless {@link me.jellysquid.mods.phosphor.common.config.PhosphorConfig#LIGHTMAP_CACHE_STATISTICS} is set.
+     */
+    long getCacheMisses();
+
+    /**
+     * Returns the number of readonly lightmaps in the owned view of this map.
+     */
+    int getReadonlyLightmapCount();
 }
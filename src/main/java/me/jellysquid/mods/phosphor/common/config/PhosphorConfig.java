@@ -0,0 +1,54 @@
+package me.jellysquid.mods.phosphor.common.config;
+
+/**
+ * Switches for optional features which are disabled by default, as they trade performance or memory for diagnostics.
+ * Each option is read once at startup from a system property, e.g. {@code -Dphosphor.trace.dir=traces}.
+ */
+public class PhosphorConfig {
+    /**
+     * The directory into which light update traces are recorded, or null if recording is disabled.
+     * See {@link me.jellysquid.mods.phosphor.common.trace.LightTraceRecorder}.
+     */
+    public static final String TRACE_DIRECTORY = System.getProperty("phosphor.trace.dir");
+
+    /**
+     * Whether the metrics of all light engines are exposed over JMX.
+     * See {@link me.jellysquid.mods.phosphor.common.metrics.LightEngineMetricsRegistry}.
+     */
+    public static final boolean METRICS_JMX = Boolean.getBoolean("phosphor.metrics.jmx");
+
+    /**
+     * Whether light work is attributed to chunk columns to find the most expensive ones.
+     * See {@link me.jellysquid.mods.phosphor.common.metrics.LightHotspotTracker}.
+     */
+    public static final boolean HOTSPOTS = Boolean.getBoolean("phosphor.hotspots");
+
+    /**
+     * The number of chunk columns kept in the table of most expensive columns per light engine.
+     */
+    public static final int HOTSPOT_COUNT = Integer.getInteger("phosphor.hotspots.count", 10);
+
+    /**
+     * Whether the latency and execution time of tasks submitted to the server light thread are recorded.
+     * See {@link me.jellysquid.mods.phosphor.common.metrics.LightTaskStatistics}.
+     */
+    public static final boolean TASK_STATISTICS = Boolean.getBoolean("phosphor.metrics.tasks");
+
+    /**
+     * Whether the hits and misses of the lightmap caches are counted, which adds work to every lightmap lookup.
+     * See {@link me.jellysquid.mods.phosphor.common.metrics.LightEngineMetrics.Snapshot#getLightmapCacheHits()}.
+     */
+    public static final boolean LIGHTMAP_CACHE_STATISTICS = Boolean.getBoolean("phosphor.metrics.lightmapcache");
+
+    /**
+     * Whether the lightmaps owned by the light engines are stored in off-heap slabs instead of heap arrays.
+     * See {@link me.jellysquid.mods.phosphor.common.util.chunk.light.LightmapSlabAllocator}.
+     */
+    public static final boolean OFF_HEAP_LIGHTMAPS = Boolean.getBoolean("phosphor.lightmaps.offheap");
+
+    /**
+     * Whether lightmaps are indexed by dense region tiles instead of a hash table keyed by section.
+     * See {@link me.jellysquid.mods.phosphor.common.util.collections.DoubleBufferedRegionSectionMap}.
+     */
+    public static final boolean REGION_LIGHTMAP_INDEX = Boolean.getBoolean("phosphor.lightmaps.regionindex");
+}
@@ -0,0 +1,280 @@
+package me.jellysquid.mods.phosphor.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import me.jellysquid.mods.phosphor.common.metrics.LightEngineMetrics;
+import net.minecraft.util.math.ChunkSectionPos;
+
+/**
+ * The Flight Recorder implementation of {@link LightEventSink}. This class must only be loaded through
+ * {@link LightEvents}, which checks that the {@code jdk.jfr} package is available first.
+ */
+@SuppressWarnings("unused")
+public class JfrLightEventSink implements LightEventSink {
+    private static final EventType LIGHT_UPDATES = EventType.getEventType(LightUpdatesEvent.class);
+    private static final EventType UPDATE_STORAGE = EventType.getEventType(UpdateStorageEvent.class);
+    private static final EventType INITIALIZE_CHUNKS = EventType.getEventType(InitializeChunksEvent.class);
+    private static final EventType LIGHT_CHUNKS = EventType.getEventType(LightChunksEvent.class);
+    private static final EventType FILL_SKYLIGHT_COLUMN = EventType.getEventType(FillSkylightColumnEvent.class);
+    private static final EventType NOTIFY_CHANGES = EventType.getEventType(NotifyChangesEvent.class);
+    private static final EventType LIGHT_TASK = EventType.getEventType(LightTaskEvent.class);
+
+    @Override
+    public Object beginLightUpdates(LightEngineMetrics metrics) {
+        if (!LIGHT_UPDATES.isEnabled()) {
+            return null;
+        }
+
+        LightUpdatesEvent event = new LightUpdatesEvent();
+        event.propagationsBefore = metrics.getPropagations();
+        event.begin();
+
+        return event;
+    }
+
+    @Override
+    public void commitLightUpdates(Object obj, LightEngineMetrics metrics, int remainingSteps) {
+        LightUpdatesEvent event = (LightUpdatesEvent) obj;
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.setEngine(metrics);
+            event.propagations = metrics.getPropagations() - event.propagationsBefore;
+            event.remainingSteps = remainingSteps;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginUpdateStorage() {
+        return begin(UPDATE_STORAGE.isEnabled() ? new UpdateStorageEvent() : null);
+    }
+
+    @Override
+    public void commitUpdateStorage(Object obj, LightEngineMetrics metrics, int chunksEnabled, int lightmapsQueued, int trivialLightmaps) {
+        UpdateStorageEvent event = (UpdateStorageEvent) obj;
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.setEngine(metrics);
+            event.chunksEnabled = chunksEnabled;
+            event.lightmapsQueued = lightmapsQueued;
+            event.trivialLightmaps = trivialLightmaps;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginInitializeChunks() {
+        return begin(INITIALIZE_CHUNKS.isEnabled() ? new InitializeChunksEvent() : null);
+    }
+
+    @Override
+    public void commitInitializeChunks(Object obj, LightEngineMetrics metrics, int chunks) {
+        InitializeChunksEvent event = (InitializeChunksEvent) obj;
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.setEngine(metrics);
+            event.chunks = chunks;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginLightChunks() {
+        return begin(LIGHT_CHUNKS.isEnabled() ? new LightChunksEvent() : null);
+    }
+
+    @Override
+    public void commitLightChunks(Object obj, LightEngineMetrics metrics, int chunks) {
+        LightChunksEvent event = (LightChunksEvent) obj;
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.setEngine(metrics);
+            event.chunks = chunks;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginFillSkylightColumn() {
+        return begin(FILL_SKYLIGHT_COLUMN.isEnabled() ? new FillSkylightColumnEvent() : null);
+    }
+
+    @Override
+    public void commitFillSkylightColumn(Object obj, LightEngineMetrics metrics, long chunkPos, int sections) {
+        FillSkylightColumnEvent event = (FillSkylightColumnEvent) obj;
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.setEngine(metrics);
+            event.chunkX = ChunkSectionPos.unpackX(chunkPos);
+            event.chunkZ = ChunkSectionPos.unpackZ(chunkPos);
+            event.sections = sections;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginNotifyChanges() {
+        return begin(NOTIFY_CHANGES.isEnabled() ? new NotifyChangesEvent() : null);
+    }
+
+    @Override
+    public void commitNotifyChanges(Object obj, LightEngineMetrics metrics, int sectionsPublished, int sectionsNotified) {
+        NotifyChangesEvent event = (NotifyChangesEvent) obj;
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.setEngine(metrics);
+            event.sectionsPublished = sectionsPublished;
+            event.sectionsNotified = sectionsNotified;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Runnable wrapTask(String stage, int chunkX, int chunkZ, String task, Runnable runnable) {
+        return () -> {
+            if (!LIGHT_TASK.isEnabled()) {
+                runnable.run();
+
+                return;
+            }
+
+            LightTaskEvent event = new LightTaskEvent();
+            event.begin();
+
+            try {
+                runnable.run();
+            } finally {
+                event.end();
+
+                if (event.shouldCommit()) {
+                    event.stage = stage;
+                    event.chunkX = chunkX;
+                    event.chunkZ = chunkZ;
+                    event.task = task;
+                    event.commit();
+                }
+            }
+        };
+    }
+
+    private static Event begin(Event event) {
+        if (event != null) {
+            event.begin();
+        }
+
+        return event;
+    }
+
+    @Category({ "Phosphor", "Light Engine" })
+    @StackTrace(false)
+    static abstract class LightEngineEvent extends Event {
+        @Label("World")
+        String world;
+
+        @Label("Light Type")
+        String lightType;
+
+        void setEngine(LightEngineMetrics metrics) {
+            this.world = metrics.getWorldName();
+            this.lightType = metrics.getLightType().name();
+        }
+    }
+
+    @Name("phosphor.LightUpdates")
+    @Label("Light Updates")
+    @Description("A batch of light updates processed by a light engine, including all stages below")
+    static class LightUpdatesEvent extends LightEngineEvent {
+        @Label("Propagations")
+        long propagations;
+
+        @Label("Remaining Steps")
+        int remainingSteps;
+
+        transient long propagationsBefore;
+    }
+
+    @Name("phosphor.UpdateStorage")
+    @Label("Update Light Storage")
+    @Description("Enabling chunks, adding queued lightmaps and removing trivial lightmaps before light is propagated")
+    static class UpdateStorageEvent extends LightEngineEvent {
+        @Label("Chunks Enabled")
+        int chunksEnabled;
+
+        @Label("Lightmaps Queued")
+        int lightmapsQueued;
+
+        @Label("Trivial Lightmaps")
+        int trivialLightmaps;
+    }
+
+    @Name("phosphor.InitializeChunks")
+    @Label("Initialize Chunks")
+    @Description("Enabling light updates for newly lit chunks")
+    static class InitializeChunksEvent extends LightEngineEvent {
+        @Label("Chunks")
+        int chunks;
+    }
+
+    @Name("phosphor.LightChunks")
+    @Label("Initial Skylight")
+    @Description("Setting up direct skylight for newly lit chunks and queueing its propagation")
+    static class LightChunksEvent extends LightEngineEvent {
+        @Label("Chunks")
+        int chunks;
+    }
+
+    @Name("phosphor.FillSkylightColumn")
+    @Label("Fill Skylight Column")
+    @Description("Filling the sections above the topmost block of a chunk with direct skylight")
+    static class FillSkylightColumnEvent extends LightEngineEvent {
+        @Label("Chunk X")
+        int chunkX;
+
+        @Label("Chunk Z")
+        int chunkZ;
+
+        @Label("Sections")
+        int sections;
+    }
+
+    @Name("phosphor.NotifyChanges")
+    @Label("Publish Light Changes")
+    @Description("Publishing modified lightmaps to other threads and notifying listeners about changed sections")
+    static class NotifyChangesEvent extends LightEngineEvent {
+        @Label("Sections Published")
+        int sectionsPublished;
+
+        @Label("Sections Notified")
+        int sectionsNotified;
+    }
+
+    @Name("phosphor.LightTask")
+    @Label("Light Task")
+    @Category({ "Phosphor", "Light Engine" })
+    @Description("A chunk task executed on the server light thread")
+    @StackTrace(false)
+    static class LightTaskEvent extends Event {
+        @Label("Stage")
+        String stage;
+
+        @Label("Chunk X")
+        int chunkX;
+
+        @Label("Chunk Z")
+        int chunkZ;
+
+        @Label("Task")
+        String task;
+    }
+}
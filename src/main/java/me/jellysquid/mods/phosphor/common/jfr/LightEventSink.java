@@ -0,0 +1,38 @@
+package me.jellysquid.mods.phosphor.common.jfr;
+
+import me.jellysquid.mods.phosphor.common.metrics.LightEngineMetrics;
+
+/**
+ * Creates and commits the events emitted by {@link LightEvents}. Events are passed around as plain objects so that
+ * implementors of this interface are the only classes referring to the event API, which may not be available.
+ *
+ * Each begin method returns null if the corresponding event is disabled, in which case the commit method must not be
+ * called.
+ */
+public interface LightEventSink {
+    Object beginLightUpdates(LightEngineMetrics metrics);
+
+    void commitLightUpdates(Object event, LightEngineMetrics metrics, int remainingSteps);
+
+    Object beginUpdateStorage();
+
+    void commitUpdateStorage(Object event, LightEngineMetrics metrics, int chunksEnabled, int lightmapsQueued, int trivialLightmaps);
+
+    Object beginInitializeChunks();
+
+    void commitInitializeChunks(Object event, LightEngineMetrics metrics, int chunks);
+
+    Object beginLightChunks();
+
+    void commitLightChunks(Object event, LightEngineMetrics metrics, int chunks);
+
+    Object beginFillSkylightColumn();
+
+    void commitFillSkylightColumn(Object event, LightEngineMetrics metrics, long chunkPos, int sections);
+
+    Object beginNotifyChanges();
+
+    void commitNotifyChanges(Object event, LightEngineMetrics metrics, int sectionsPublished, int sectionsNotified);
+
+    Runnable wrapTask(String stage, int chunkX, int chunkZ, String task, Runnable runnable);
+}
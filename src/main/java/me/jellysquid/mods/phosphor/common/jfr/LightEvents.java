@@ -0,0 +1,125 @@
+package me.jellysquid.mods.phosphor.common.jfr;
+
+import me.jellysquid.mods.phosphor.common.metrics.LightEngineMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Emits Java Flight Recorder events for the coarse-grained stages of the light engine, so that light work can be
+ * correlated with GC pauses and stalls of other threads in the same recording. The events are listed under "Phosphor"
+ * in JDK Mission Control and are enabled by default when a recording is started.
+ *
+ * Java 8 runtimes without Flight Recorder support are still supported, in which case all methods are no-ops. To make
+ * this work, no class besides {@link JfrLightEventSink} may refer to the {@code jdk.jfr} package, and it is only loaded
+ * reflectively after checking that the API is available.
+ */
+public class LightEvents {
+    private static final Logger LOGGER = LogManager.getLogger("Phosphor");
+
+    private static final LightEventSink SINK = createSink();
+
+    private static LightEventSink createSink() {
+        try {
+            Class.forName("jdk.jfr.Event", false, LightEvents.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+
+        try {
+            return (LightEventSink) Class.forName("me.jellysquid.mods.phosphor.common.jfr.JfrLightEventSink")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOGGER.warn("Could not set up Flight Recorder events, they will not be emitted", e);
+
+            return null;
+        }
+    }
+
+    /**
+     * Marks the start of a batch of light updates processed by
+     * {@link net.minecraft.world.chunk.light.ChunkLightProvider#doLightUpdates(int, boolean, boolean)}.
+     */
+    public static Object beginLightUpdates(LightEngineMetrics metrics) {
+        return SINK != null ? SINK.beginLightUpdates(metrics) : null;
+    }
+
+    public static void commitLightUpdates(Object event, LightEngineMetrics metrics, int remainingSteps) {
+        if (event != null) {
+            SINK.commitLightUpdates(event, metrics, remainingSteps);
+        }
+    }
+
+    /**
+     * Marks the start of {@link net.minecraft.world.chunk.light.LightStorage#updateLight}, which applies queued
+     * lightmaps and removes lightmaps which became trivial.
+     */
+    public static Object beginUpdateStorage() {
+        return SINK != null ? SINK.beginUpdateStorage() : null;
+    }
+
+    public static void commitUpdateStorage(Object event, LightEngineMetrics metrics, int chunksEnabled, int lightmapsQueued, int trivialLightmaps) {
+        if (event != null) {
+            SINK.commitUpdateStorage(event, metrics, chunksEnabled, lightmapsQueued, trivialLightmaps);
+        }
+    }
+
+    /**
+     * Marks the start of enabling light updates for all chunks marked since the last update.
+     */
+    public static Object beginInitializeChunks() {
+        return SINK != null ? SINK.beginInitializeChunks() : null;
+    }
+
+    public static void commitInitializeChunks(Object event, LightEngineMetrics metrics, int chunks) {
+        if (event != null) {
+            SINK.commitInitializeChunks(event, metrics, chunks);
+        }
+    }
+
+    /**
+     * Marks the start of the initial skylight propagation for all chunks enabled since the last update.
+     */
+    public static Object beginLightChunks() {
+        return SINK != null ? SINK.beginLightChunks() : null;
+    }
+
+    public static void commitLightChunks(Object event, LightEngineMetrics metrics, int chunks) {
+        if (event != null) {
+            SINK.commitLightChunks(event, metrics, chunks);
+        }
+    }
+
+    /**
+     * Marks the start of filling the sections above the topmost block of a single chunk with direct skylight.
+     */
+    public static Object beginFillSkylightColumn() {
+        return SINK != null ? SINK.beginFillSkylightColumn() : null;
+    }
+
+    public static void commitFillSkylightColumn(Object event, LightEngineMetrics metrics, long chunkPos, int sections) {
+        if (event != null) {
+            SINK.commitFillSkylightColumn(event, metrics, chunkPos, sections);
+        }
+    }
+
+    /**
+     * Marks the start of publishing modified lightmaps to other threads and notifying listeners about changed sections.
+     */
+    public static Object beginNotifyChanges() {
+        return SINK != null ? SINK.beginNotifyChanges() : null;
+    }
+
+    public static void commitNotifyChanges(Object event, LightEngineMetrics metrics, int sectionsPublished, int sectionsNotified) {
+        if (event != null) {
+            SINK.commitNotifyChanges(event, metrics, sectionsPublished, sectionsNotified);
+        }
+    }
+
+    /**
+     * Wraps a task submitted to the light thread so that an event is emitted for its execution.
+     */
+    public static Runnable wrapTask(String stage, int chunkX, int chunkZ, String task, Runnable runnable) {
+        return SINK != null ? SINK.wrapTask(stage, chunkX, chunkZ, task, runnable) : runnable;
+    }
+}
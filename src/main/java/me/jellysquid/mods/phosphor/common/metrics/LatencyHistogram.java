@@ -0,0 +1,101 @@
+package me.jellysquid.mods.phosphor.common.metrics;
+
+/**
+ * A fixed-size histogram of durations in nanoseconds with log-linear buckets, similar to HdrHistogram. Each power of
+ * two is split into {@link #SUB_BUCKET_COUNT} linear buckets, which bounds the relative error of reported percentiles
+ * to about 6% while only using a few kilobytes of memory, independent of the number of recorded values.
+ *
+ * Values must only be recorded by one thread at a time. Other threads may read the histogram concurrently, in which
+ * case they might see a slightly inconsistent state.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    // Values above 2^44 ns (about 4.9 hours) are clamped into the last bucket
+    private static final int MAX_VALUE_BITS = 44;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+    private static final int BUCKET_COUNT = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+
+    private long totalCount;
+    private long maxValue;
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+
+        this.counts[getBucketIndex(value)]++;
+        this.totalCount++;
+
+        if (value > this.maxValue) {
+            this.maxValue = value;
+        }
+    }
+
+    public long getTotalCount() {
+        return this.totalCount;
+    }
+
+    public long getMaxValue() {
+        return this.maxValue;
+    }
+
+    /**
+     * Returns the lower bound of the bucket containing the value at the given percentile, or 0 if the histogram is
+     * empty.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] counts = this.counts;
+        long total = 0;
+
+        for (long count : counts) {
+            total += count;
+        }
+
+        long target = (long) Math.ceil(total * percentile / 100.0D);
+
+        if (target <= 0) {
+            target = 1;
+        }
+
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; ++i) {
+            seen += counts[i];
+
+            if (seen >= target) {
+                return getBucketLowerBound(i);
+            }
+        }
+
+        return 0;
+    }
+
+    private static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+
+        return ((shift + 1) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    private static long getBucketLowerBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift = (index >> SUB_BUCKET_BITS) - 1;
+        int subBucket = index & (SUB_BUCKET_COUNT - 1);
+
+        return (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+    }
+}
@@ -0,0 +1,270 @@
+package me.jellysquid.mods.phosphor.common.metrics;
+
+import me.jellysquid.mods.phosphor.common.config.PhosphorConfig;
+import net.minecraft.world.LightType;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Counters and gauges for a single light engine, i.e. one {@link net.minecraft.world.chunk.light.ChunkLightProvider} of
+ * one world.
+ *
+ * Counters are only ever written by the thread currently processing light updates for the engine, so they are plain
+ * fields which are incremented without synchronization. Observers read them racily through {@link #snapshot()}, which
+ * may therefore lag slightly behind, but never blocks or slows down the light engine.
+ */
+public class LightEngineMetrics {
+    private final String worldName;
+    private final LightType lightType;
+    private final Gauges gauges;
+    private final LightHotspotTracker hotspots;
+
+    private long propagations;
+    private long lightmapsCreated;
+    private long lightmapsRemoved;
+    private long lightmapsCopied;
+    private long trivialLightmapsReclaimed;
+    private long publishes;
+    private long sectionsPublished;
+
+    public LightEngineMetrics(String worldName, LightType lightType, Gauges gauges) {
+        this.worldName = worldName;
+        this.lightType = lightType;
+        this.gauges = gauges;
+        this.hotspots = PhosphorConfig.HOTSPOTS ? new LightHotspotTracker(this) : null;
+    }
+
+    public String getWorldName() {
+        return this.worldName;
+    }
+
+    public LightType getLightType() {
+        return this.lightType;
+    }
+
+    public long getPropagations() {
+        return this.propagations;
+    }
+
+    /**
+     * Counts the propagation of the light level at the given position to its neighbours.
+     */
+    public void countPropagation(long blockPos) {
+        this.propagations++;
+
+        if (this.hotspots != null) {
+            this.hotspots.addWork(blockPos);
+        }
+    }
+
+    /**
+     * Attributes light work other than propagations at the given position to its chunk column. This is a no-op unless
+     * hotspot tracking is enabled.
+     */
+    public void attributeWork(long blockPos) {
+        if (this.hotspots != null) {
+            this.hotspots.addWork(blockPos);
+        }
+    }
+
+    /**
+     * Called before each batch of light updates to advance time-based statistics.
+     */
+    public void tick() {
+        if (this.hotspots != null) {
+            this.hotspots.tick();
+        }
+    }
+
+    /**
+     * Returns the most expensive chunk columns of the last minute, or an empty list if hotspot tracking is disabled.
+     * This is safe to call from any thread.
+     */
+    public List<LightHotspotTracker.Hotspot> getHotspots() {
+        return this.hotspots != null ? this.hotspots.getHotspots() : Collections.emptyList();
+    }
+
+    public void countLightmapCreated() {
+        this.lightmapsCreated++;
+    }
+
+    public void countLightmapRemoved() {
+        this.lightmapsRemoved++;
+    }
+
+    public void countLightmapCopied() {
+        this.lightmapsCopied++;
+    }
+
+    public void countTrivialLightmapsReclaimed(int count) {
+        this.trivialLightmapsReclaimed += count;
+    }
+
+    public void countPublish(int sections) {
+        this.publishes++;
+        this.sectionsPublished += sections;
+    }
+
+    /**
+     * Takes a best-effort copy of the current values. This is safe to call from any thread.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this.worldName, this.lightType.name(),
+                this.propagations, this.gauges.countPendingUpdates(), this.gauges.countPendingUpdateBuckets(),
+                this.gauges.countPooledPendingUpdateBuckets(),
+                this.lightmapsCreated, this.lightmapsRemoved, this.lightmapsCopied, this.trivialLightmapsReclaimed,
+                this.gauges.countReadonlyLightmaps(), this.gauges.countLightmapCacheHits(), this.gauges.countLightmapCacheMisses(),
+                this.publishes, this.sectionsPublished);
+    }
+
+    /**
+     * Values which are owned by the light engine and only sampled when a snapshot is taken. Implementations must
+     * tolerate being called from other threads than the one processing light updates.
+     */
+    public interface Gauges {
+        int countPendingUpdates();
+
+        int countPendingUpdateBuckets();
+
+        int countPooledPendingUpdateBuckets();
+
+        int countReadonlyLightmaps();
+
+        long countLightmapCacheHits();
+
+        long countLightmapCacheMisses();
+    }
+
+    /**
+     * An immutable copy of the metrics of a light engine. The getters double as the attributes exposed over JMX.
+     */
+    public static class Snapshot {
+        private final String world;
+        private final String lightType;
+        private final long propagations;
+        private final int pendingUpdates;
+        private final int pendingUpdateBuckets;
+        private final int pooledPendingUpdateBuckets;
+        private final long lightmapsCreated;
+        private final long lightmapsRemoved;
+        private final long lightmapsCopied;
+        private final long trivialLightmapsReclaimed;
+        private final int readonlyLightmaps;
+        private final long lightmapCacheHits;
+        private final long lightmapCacheMisses;
+        private final long publishes;
+        private final long sectionsPublished;
+
+        public Snapshot(String world, String lightType, long propagations, int pendingUpdates, int pendingUpdateBuckets,
+                        int pooledPendingUpdateBuckets, long lightmapsCreated, long lightmapsRemoved, long lightmapsCopied, long trivialLightmapsReclaimed,
+                        int readonlyLightmaps, long lightmapCacheHits, long lightmapCacheMisses, long publishes, long sectionsPublished) {
+            this.world = world;
+            this.lightType = lightType;
+            this.propagations = propagations;
+            this.pendingUpdates = pendingUpdates;
+            this.pendingUpdateBuckets = pendingUpdateBuckets;
+            this.pooledPendingUpdateBuckets = pooledPendingUpdateBuckets;
+            this.lightmapsCreated = lightmapsCreated;
+            this.lightmapsRemoved = lightmapsRemoved;
+            this.lightmapsCopied = lightmapsCopied;
+            this.trivialLightmapsReclaimed = trivialLightmapsReclaimed;
+            this.readonlyLightmaps = readonlyLightmaps;
+            this.lightmapCacheHits = lightmapCacheHits;
+            this.lightmapCacheMisses = lightmapCacheMisses;
+            this.publishes = publishes;
+            this.sectionsPublished = sectionsPublished;
+        }
+
+        public String getWorld() {
+            return this.world;
+        }
+
+        public String getLightType() {
+            return this.lightType;
+        }
+
+        /**
+         * The number of positions whose light level has been propagated to their neighbours.
+         */
+        public long getPropagations() {
+            return this.propagations;
+        }
+
+        /**
+         * The number of positions currently queued for a light update.
+         */
+        public int getPendingUpdates() {
+            return this.pendingUpdates;
+        }
+
+        /**
+         * The number of chunk sections which currently have queued light updates.
+         */
+        public int getPendingUpdateBuckets() {
+            return this.pendingUpdateBuckets;
+        }
+
+        /**
+         * The number of unused chunk section buckets which are kept for reuse by later updates.
+         */
+        public int getPooledPendingUpdateBuckets() {
+            return this.pooledPendingUpdateBuckets;
+        }
+
+        public long getLightmapsCreated() {
+            return this.lightmapsCreated;
+        }
+
+        public long getLightmapsRemoved() {
+            return this.lightmapsRemoved;
+        }
+
+        /**
+         * The number of lightmaps which had to be copied before being modified, as their previous version was already
+         * published to other threads.
+         */
+        public long getLightmapsCopied() {
+            return this.lightmapsCopied;
+        }
+
+        /**
+         * The number of lightmaps which were removed again as they did not hold any information.
+         */
+        public long getTrivialLightmapsReclaimed() {
+            return this.trivialLightmapsReclaimed;
+        }
+
+        /**
+         * The number of readonly lightmaps currently held for compatibility with vanilla.
+         */
+        public int getReadonlyLightmaps() {
+            return this.readonlyLightmaps;
+        }
+
+        /**
+         * The number of lightmap lookups of the light engine which were answered by the lightmap cache.
+         */
+        public long getLightmapCacheHits() {
+            return this.lightmapCacheHits;
+        }
+
+        /**
+         * The number of lightmap lookups of the light engine which had to fall back to the lightmap table.
+         */
+        public long getLightmapCacheMisses() {
+            return this.lightmapCacheMisses;
+        }
+
+        /**
+         * The number of times modified lightmaps have been made visible to other threads.
+         */
+        public long getPublishes() {
+            return this.publishes;
+        }
+
+        public long getSectionsPublished() {
+            return this.sectionsPublished;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package me.jellysquid.mods.phosphor.common.metrics;
+
+public interface LightEngineMetricsAccess {
+    LightEngineMetrics getMetrics();
+
+    void setMetrics(LightEngineMetrics metrics);
+}
@@ -0,0 +1,13 @@
+package me.jellysquid.mods.phosphor.common.metrics;
+
+/**
+ * The management interface exposing the metrics of all loaded light engines, registered as
+ * {@link LightEngineMetricsRegistry#OBJECT_NAME} when enabled.
+ */
+public interface LightEngineMetricsMXBean {
+    LightEngineMetrics.Snapshot[] getEngines();
+
+    LightHotspotTracker.Hotspot[] getHotspots();
+
+    LightTaskStatistics.Summary[] getTasks();
+}
@@ -0,0 +1,138 @@
+package me.jellysquid.mods.phosphor.common.metrics;
+
+import me.jellysquid.mods.phosphor.common.config.PhosphorConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keeps track of the metrics of every light engine which is currently alive. Engines are only weakly referenced, so
+ * unloaded worlds drop out of the registry once they have been garbage collected.
+ *
+ * The metrics can be polled through {@link #getSnapshots()}, and are additionally exposed over JMX if
+ * {@link PhosphorConfig#METRICS_JMX} is set.
+ */
+public class LightEngineMetricsRegistry {
+    private static final Logger LOGGER = LogManager.getLogger("Phosphor");
+
+    public static final String OBJECT_NAME = "me.jellysquid.mods.phosphor:type=LightEngineMetrics";
+
+    private static final List<WeakReference<LightEngineMetrics>> ENGINES = new ArrayList<>();
+    private static final List<WeakReference<LightTaskStatistics>> TASK_STATISTICS = new ArrayList<>();
+
+    private static boolean registeredMBean;
+
+    public static void register(LightEngineMetrics metrics) {
+        synchronized (ENGINES) {
+            ENGINES.add(new WeakReference<>(metrics));
+
+            if (PhosphorConfig.METRICS_JMX && !registeredMBean) {
+                registeredMBean = true;
+                registerMBean();
+            }
+        }
+    }
+
+    // The MBean has already been registered by the light engines of the same lighting provider at this point
+    public static void register(LightTaskStatistics statistics) {
+        synchronized (TASK_STATISTICS) {
+            TASK_STATISTICS.add(new WeakReference<>(statistics));
+        }
+    }
+
+    /**
+     * Returns a snapshot of the metrics of every light engine which is currently alive.
+     */
+    public static List<LightEngineMetrics.Snapshot> getSnapshots() {
+        List<LightEngineMetrics.Snapshot> snapshots = new ArrayList<>();
+
+        synchronized (ENGINES) {
+            for (Iterator<WeakReference<LightEngineMetrics>> it = ENGINES.iterator(); it.hasNext(); ) {
+                LightEngineMetrics metrics = it.next().get();
+
+                if (metrics == null) {
+                    it.remove();
+                } else {
+                    snapshots.add(metrics.snapshot());
+                }
+            }
+        }
+
+        return snapshots;
+    }
+
+    /**
+     * Returns the most expensive chunk columns of the last minute across all light engines, ordered by descending work.
+     * This is empty unless {@link PhosphorConfig#HOTSPOTS} is set.
+     */
+    public static List<LightHotspotTracker.Hotspot> getHotspots() {
+        List<LightHotspotTracker.Hotspot> hotspots = new ArrayList<>();
+
+        synchronized (ENGINES) {
+            for (WeakReference<LightEngineMetrics> ref : ENGINES) {
+                LightEngineMetrics metrics = ref.get();
+
+                if (metrics != null) {
+                    hotspots.addAll(metrics.getHotspots());
+                }
+            }
+        }
+
+        hotspots.sort((a, b) -> Long.compare(b.getWork(), a.getWork()));
+
+        return hotspots;
+    }
+
+    /**
+     * Returns the latency summaries of the tasks of every server light thread which is currently alive. This is empty
+     * unless {@link PhosphorConfig#TASK_STATISTICS} is set.
+     */
+    public static List<LightTaskStatistics.Summary> getTaskSummaries() {
+        List<LightTaskStatistics.Summary> summaries = new ArrayList<>();
+
+        synchronized (TASK_STATISTICS) {
+            for (Iterator<WeakReference<LightTaskStatistics>> it = TASK_STATISTICS.iterator(); it.hasNext(); ) {
+                LightTaskStatistics statistics = it.next().get();
+
+                if (statistics == null) {
+                    it.remove();
+                } else {
+                    summaries.addAll(statistics.summarize());
+                }
+            }
+        }
+
+        return summaries;
+    }
+
+    private static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MBean(), new ObjectName(OBJECT_NAME));
+        } catch (Exception e) {
+            LOGGER.warn("Could not register light engine metrics with JMX", e);
+        }
+    }
+
+    public static class MBean implements LightEngineMetricsMXBean {
+        @Override
+        public LightEngineMetrics.Snapshot[] getEngines() {
+            return getSnapshots().toArray(new LightEngineMetrics.Snapshot[0]);
+        }
+
+        @Override
+        public LightHotspotTracker.Hotspot[] getHotspots() {
+            return LightEngineMetricsRegistry.getHotspots().toArray(new LightHotspotTracker.Hotspot[0]);
+        }
+
+        @Override
+        public LightTaskStatistics.Summary[] getTasks() {
+            return getTaskSummaries().toArray(new LightTaskStatistics.Summary[0]);
+        }
+    }
+}
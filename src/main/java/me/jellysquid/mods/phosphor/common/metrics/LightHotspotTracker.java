@@ -0,0 +1,199 @@
+package me.jellysquid.mods.phosphor.common.metrics;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongMaps;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import me.jellysquid.mods.phosphor.common.config.PhosphorConfig;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Attributes the propagation work of a light engine to the chunk columns it happens in, and keeps a table of the most
+ * expensive columns over the last minute. This is only enabled with {@link PhosphorConfig#HOTSPOTS}.
+ *
+ * Work is accumulated into one of several slices of the time window, the oldest of which is dropped whenever a new one
+ * is started. As consecutive units of work are mostly located in the same column, the work is first accumulated for
+ * the last column and only flushed into the slice once another column is touched, which avoids a hash lookup for most
+ * units of work.
+ *
+ * All methods but {@link #getHotspots()} must only be called from the thread processing light updates. The table is
+ * recomputed whenever a slice is started, and is then published to other threads.
+ */
+public class LightHotspotTracker {
+    private static final Logger LOGGER = LogManager.getLogger("Phosphor");
+
+    private static final int SLICE_COUNT = 6;
+    private static final long SLICE_DURATION = TimeUnit.SECONDS.toNanos(10);
+    private static final long WINDOW_DURATION = SLICE_COUNT * SLICE_DURATION;
+
+    private final LightEngineMetrics metrics;
+
+    private final Long2LongOpenHashMap[] slices = new Long2LongOpenHashMap[SLICE_COUNT];
+    private int currentSlice;
+    private int completedSlices;
+    private long sliceStart = System.nanoTime();
+
+    private long lastColumn = ChunkPos.MARKER;
+    private long lastColumnWork;
+
+    private volatile List<Hotspot> hotspots = Collections.emptyList();
+    private volatile long hotspotsTime;
+
+    LightHotspotTracker(LightEngineMetrics metrics) {
+        this.metrics = metrics;
+
+        for (int i = 0; i < SLICE_COUNT; ++i) {
+            this.slices[i] = new Long2LongOpenHashMap();
+        }
+    }
+
+    /**
+     * Attributes one unit of work to the chunk column containing the given block position.
+     */
+    public void addWork(long blockPos) {
+        long column = ChunkPos.toLong(BlockPos.unpackLongX(blockPos) >> 4, BlockPos.unpackLongZ(blockPos) >> 4);
+
+        if (column != this.lastColumn) {
+            this.flushLastColumn();
+            this.lastColumn = column;
+        }
+
+        this.lastColumnWork++;
+    }
+
+    private void flushLastColumn() {
+        if (this.lastColumnWork != 0) {
+            this.slices[this.currentSlice].addTo(this.lastColumn, this.lastColumnWork);
+            this.lastColumnWork = 0;
+        }
+    }
+
+    /**
+     * Starts a new slice of the time window if the current one has expired. This should be called regularly.
+     */
+    public void tick() {
+        long time = System.nanoTime();
+
+        if (time - this.sliceStart < SLICE_DURATION) {
+            return;
+        }
+
+        this.flushLastColumn();
+
+        List<Hotspot> hotspots = this.computeHotspots();
+
+        this.hotspots = hotspots;
+        this.hotspotsTime = time;
+
+        // Log the table once per window, as it otherwise mostly consists of the same columns
+        if (++this.completedSlices % SLICE_COUNT == 0 && !hotspots.isEmpty()) {
+            this.logHotspots(hotspots);
+        }
+
+        this.currentSlice = (this.currentSlice + 1) % SLICE_COUNT;
+        this.slices[this.currentSlice].clear();
+        this.sliceStart = time;
+    }
+
+    private List<Hotspot> computeHotspots() {
+        Long2LongOpenHashMap totals = new Long2LongOpenHashMap();
+
+        for (Long2LongOpenHashMap slice : this.slices) {
+            for (Long2LongMap.Entry entry : Long2LongMaps.fastIterable(slice)) {
+                totals.addTo(entry.getLongKey(), entry.getLongValue());
+            }
+        }
+
+        List<Hotspot> hotspots = new ArrayList<>(totals.size());
+
+        for (Long2LongMap.Entry entry : Long2LongMaps.fastIterable(totals)) {
+            long column = entry.getLongKey();
+
+            hotspots.add(new Hotspot(this.metrics.getWorldName(), this.metrics.getLightType().name(),
+                    (int) column, (int) (column >>> 32), entry.getLongValue()));
+        }
+
+        hotspots.sort((a, b) -> Long.compare(b.getWork(), a.getWork()));
+
+        if (hotspots.size() > PhosphorConfig.HOTSPOT_COUNT) {
+            hotspots = new ArrayList<>(hotspots.subList(0, PhosphorConfig.HOTSPOT_COUNT));
+        }
+
+        return Collections.unmodifiableList(hotspots);
+    }
+
+    private void logHotspots(List<Hotspot> hotspots) {
+        StringBuilder builder = new StringBuilder();
+
+        for (Hotspot hotspot : hotspots) {
+            builder.append("\n  chunk [")
+                    .append(hotspot.getChunkX()).append(", ").append(hotspot.getChunkZ())
+                    .append("] (blocks ").append(hotspot.getChunkX() << 4).append(", ").append(hotspot.getChunkZ() << 4)
+                    .append("): ").append(hotspot.getWork());
+        }
+
+        LOGGER.info("Most expensive chunks for {} light in {} during the last minute:{}", this.metrics.getLightType(), this.metrics.getWorldName(), builder);
+    }
+
+    /**
+     * Returns the most expensive chunk columns of the last minute, ordered by descending work. Columns are only
+     * reported if light updates have been processed recently. This is safe to call from any thread.
+     */
+    public List<Hotspot> getHotspots() {
+        if (System.nanoTime() - this.hotspotsTime > WINDOW_DURATION) {
+            return Collections.emptyList();
+        }
+
+        return this.hotspots;
+    }
+
+    /**
+     * A chunk column together with the amount of work attributed to it. The getters double as the attributes exposed
+     * over JMX.
+     */
+    public static class Hotspot {
+        private final String world;
+        private final String lightType;
+        private final int chunkX;
+        private final int chunkZ;
+        private final long work;
+
+        public Hotspot(String world, String lightType, int chunkX, int chunkZ, long work) {
+            this.world = world;
+            this.lightType = lightType;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.work = work;
+        }
+
+        public String getWorld() {
+            return this.world;
+        }
+
+        public String getLightType() {
+            return this.lightType;
+        }
+
+        public int getChunkX() {
+            return this.chunkX;
+        }
+
+        public int getChunkZ() {
+            return this.chunkZ;
+        }
+
+        /**
+         * The number of propagations, recalculations and initial spreads of light performed in this column.
+         */
+        public long getWork() {
+            return this.work;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package me.jellysquid.mods.phosphor.common.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long tasks submitted to a {@link net.minecraft.server.world.ServerLightingProvider} wait until they are
+ * executed, and how long they take to execute, split by the stage and the origin of the task. This is only enabled
+ * with {@link me.jellysquid.mods.phosphor.common.config.PhosphorConfig#TASK_STATISTICS}.
+ *
+ * Tasks are wrapped when they are enqueued, which stamps them with the enqueue time. The stage of a task is not known
+ * at that point, but it is implied by the point at which the light thread executes it: tasks of the first stage are all
+ * executed before light updates are processed, and tasks of the second stage afterwards.
+ */
+public class LightTaskStatistics {
+    public static final int STAGE_PRE_UPDATE = 0;
+    public static final int STAGE_POST_UPDATE = 1;
+
+    private static final String[] STAGE_NAMES = { "PRE_UPDATE", "POST_UPDATE" };
+
+    private final String worldName;
+
+    private final LatencyHistogram[][] latencies = createHistograms();
+    private final LatencyHistogram[][] executionTimes = createHistograms();
+
+    // Only accessed by the light thread
+    private int executingStage = STAGE_PRE_UPDATE;
+
+    public LightTaskStatistics(String worldName) {
+        this.worldName = worldName;
+    }
+
+    private static LatencyHistogram[][] createHistograms() {
+        LatencyHistogram[][] histograms = new LatencyHistogram[STAGE_NAMES.length][Origin.values().length];
+
+        for (LatencyHistogram[] stage : histograms) {
+            for (int i = 0; i < stage.length; ++i) {
+                stage[i] = new LatencyHistogram();
+            }
+        }
+
+        return histograms;
+    }
+
+    /**
+     * Wraps a task so that its latency is recorded when it is executed. Tasks which have already been wrapped are
+     * returned as-is, so that the most specific origin is kept.
+     */
+    public Runnable wrap(Origin origin, Runnable task) {
+        if (task instanceof TimedTask) {
+            return task;
+        }
+
+        return new TimedTask(origin, task);
+    }
+
+    /**
+     * Sets the stage of the tasks executed next by the light thread.
+     */
+    public void setExecutingStage(int stage) {
+        this.executingStage = stage;
+    }
+
+    /**
+     * Returns a summary of each non-empty combination of stage and origin. This is safe to call from any thread.
+     */
+    public List<Summary> summarize() {
+        List<Summary> summaries = new ArrayList<>();
+
+        for (int stage = 0; stage < STAGE_NAMES.length; ++stage) {
+            for (Origin origin : Origin.values()) {
+                LatencyHistogram latency = this.latencies[stage][origin.ordinal()];
+                LatencyHistogram execution = this.executionTimes[stage][origin.ordinal()];
+
+                if (execution.getTotalCount() == 0) {
+                    continue;
+                }
+
+                summaries.add(new Summary(this.worldName, STAGE_NAMES[stage], origin.name(), execution.getTotalCount(),
+                        toMicros(latency.getValueAtPercentile(50.0D)), toMicros(latency.getValueAtPercentile(90.0D)),
+                        toMicros(latency.getValueAtPercentile(99.0D)), toMicros(latency.getMaxValue()),
+                        toMicros(execution.getValueAtPercentile(50.0D)), toMicros(execution.getValueAtPercentile(90.0D)),
+                        toMicros(execution.getValueAtPercentile(99.0D)), toMicros(execution.getMaxValue())));
+            }
+        }
+
+        return summaries;
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * The code path a task was submitted from.
+     */
+    public enum Origin {
+        /**
+         * Setting up lightmaps for a chunk in the light stage of world generation.
+         */
+        SETUP_LIGHTMAPS,
+        /**
+         * Lighting a chunk in the light stage of world generation. The second stage releases the light ticket.
+         */
+        LIGHT,
+        /**
+         * Checking a changed block.
+         */
+        BLOCK_UPDATE,
+        /**
+         * Any other task, such as changes of section status or lightmaps sent by the client.
+         */
+        OTHER
+    }
+
+    private class TimedTask implements Runnable {
+        private final Origin origin;
+        private final Runnable task;
+        private final long enqueueTime = System.nanoTime();
+
+        private TimedTask(Origin origin, Runnable task) {
+            this.origin = origin;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+
+            try {
+                this.task.run();
+            } finally {
+                int stage = LightTaskStatistics.this.executingStage;
+
+                LightTaskStatistics.this.latencies[stage][this.origin.ordinal()].record(start - this.enqueueTime);
+                LightTaskStatistics.this.executionTimes[stage][this.origin.ordinal()].record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return this.task.toString();
+        }
+    }
+
+    /**
+     * The percentiles of the latency and execution time of one kind of task, in microseconds. The getters double as
+     * the attributes exposed over JMX.
+     */
+    public static class Summary {
+        private final String world;
+        private final String stage;
+        private final String origin;
+        private final long count;
+        private final long latencyP50;
+        private final long latencyP90;
+        private final long latencyP99;
+        private final long latencyMax;
+        private final long executionP50;
+        private final long executionP90;
+        private final long executionP99;
+        private final long executionMax;
+
+        public Summary(String world, String stage, String origin, long count,
+                       long latencyP50, long latencyP90, long latencyP99, long latencyMax,
+                       long executionP50, long executionP90, long executionP99, long executionMax) {
+            this.world = world;
+            this.stage = stage;
+            this.origin = origin;
+            this.count = count;
+            this.latencyP50 = latencyP50;
+            this.latencyP90 = latencyP90;
+            this.latencyP99 = latencyP99;
+            this.latencyMax = latencyMax;
+            this.executionP50 = executionP50;
+            this.executionP90 = executionP90;
+            this.executionP99 = executionP99;
+            this.executionMax = executionMax;
+        }
+
+        public String getWorld() {
+            return this.world;
+        }
+
+        public String getStage() {
+            return this.stage;
+        }
+
+        public String getOrigin() {
+            return this.origin;
+        }
+
+        public long getCount() {
+            return this.count;
+        }
+
+        public long getLatencyP50() {
+            return this.latencyP50;
+        }
+
+        public long getLatencyP90() {
+            return this.latencyP90;
+        }
+
+        public long getLatencyP99() {
+            return this.latencyP99;
+        }
+
+        public long getLatencyMax() {
+            return this.latencyMax;
+        }
+
+        public long getExecutionP50() {
+            return this.executionP50;
+        }
+
+        public long getExecutionP90() {
+            return this.executionP90;
+        }
+
+        public long getExecutionP99() {
+            return this.executionP99;
+        }
+
+        public long getExecutionMax() {
+            return this.executionMax;
+        }
+    }
+}
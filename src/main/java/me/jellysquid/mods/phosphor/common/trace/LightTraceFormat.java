@@ -0,0 +1,50 @@
+package me.jellysquid.mods.phosphor.common.trace;
+
+/**
+ * Describes the binary format of light update traces. A trace is a GZIP compressed stream starting with a header,
+ * followed by a sequence of records. Each record starts with one of the opcodes below, and ends the trace if it is
+ * {@link #END} or the stream ends prematurely.
+ *
+ * Header: magic (int), version (int), has block light (boolean), has sky light (boolean), world name (UTF)
+ *
+ * Block states are referred to by their raw ids, which are defined by a {@link #DEFINE_STATE} record before their
+ * first use, so that traces can be replayed with a different registry. Positions are stored in their packed long form.
+ * Chunk sections are stored as a palette of state ids (var-ints), followed by 4096 palette indices in YZX order which
+ * are omitted for a single-entry palette and are otherwise stored as bytes if the palette has at most 256 entries or as
+ * shorts if not.
+ */
+public class LightTraceFormat {
+    public static final int MAGIC = 0x50485452; // "PHTR"
+    public static final int VERSION = 1;
+
+    public static final String FILE_EXTENSION = ".phtrace";
+
+    /** End of the trace */
+    public static final int END = 0;
+    /** raw id (var-int), block state string (UTF) */
+    public static final int DEFINE_STATE = 1;
+    /** chunk x (int), chunk z (int), 16 sections each prefixed with a boolean indicating whether it is non-empty */
+    public static final int CHUNK_SNAPSHOT = 2;
+    /** block pos (long), raw id (var-int) */
+    public static final int SET_BLOCK_STATE = 3;
+    /** block pos (long) */
+    public static final int CHECK_BLOCK = 4;
+    /** block pos (long), level (byte) */
+    public static final int ADD_LIGHT_SOURCE = 5;
+    /** section pos (long), not ready (boolean) */
+    public static final int SET_SECTION_STATUS = 6;
+    /** light type ordinal (byte), section pos (long), non-edge (boolean), present (boolean), [2048 bytes if present] */
+    public static final int ENQUEUE_SECTION_DATA = 7;
+    /** chunk pos (long), enabled (boolean) */
+    public static final int SET_COLUMN_ENABLED = 8;
+    /** chunk pos (long), retain (boolean) */
+    public static final int SET_RETAIN_DATA = 9;
+    /** column section pos (long) */
+    public static final int ENABLE_SOURCE_LIGHT = 10;
+    /** column section pos (long) */
+    public static final int ENABLE_LIGHT_UPDATES = 11;
+    /** max update count (int), do sky light (boolean), skip edge light propagation (boolean) */
+    public static final int DO_LIGHT_UPDATES = 12;
+
+    public static final int SECTION_VOLUME = 16 * 16 * 16;
+}
@@ -0,0 +1,413 @@
+package me.jellysquid.mods.phosphor.common.trace;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import me.jellysquid.mods.phosphor.common.config.PhosphorConfig;
+import me.jellysquid.mods.phosphor.common.util.WorldUtil;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.command.argument.BlockArgumentParser;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.BlockView;
+import net.minecraft.world.LightType;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkNibbleArray;
+import net.minecraft.world.chunk.ChunkProvider;
+import net.minecraft.world.chunk.ChunkSection;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records every call into a {@link net.minecraft.world.chunk.light.LightingProvider} together with the block states it
+ * will see, so that the exact sequence of light updates can later be replayed outside of the game. Recording is enabled
+ * by setting {@link PhosphorConfig#TRACE_DIRECTORY}, in which case one trace file is written per lighting provider. See
+ * {@link LightTraceFormat} for a description of the format.
+ *
+ * Block states are captured by snapshotting a chunk column (and any of its neighbours which haven't been captured yet)
+ * when light updates are enabled for it, and by recording the new block state whenever a block is checked. Block
+ * changes which are never passed to the light engine are not relevant to it and are therefore not recorded.
+ *
+ * All calls into a lighting provider happen sequentially, but not necessarily from the same thread, so access to the
+ * output stream is synchronized.
+ */
+public class LightTraceRecorder {
+    private static final Logger LOGGER = LogManager.getLogger("Phosphor");
+
+    private static final List<LightTraceRecorder> OPEN_RECORDERS = new ArrayList<>();
+
+    private static final long FLUSH_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(LightTraceRecorder::closeAll, "Phosphor trace writer shutdown"));
+    }
+
+    private final ChunkProvider chunkProvider;
+    private final File file;
+
+    private DataOutputStream out;
+
+    private final IntOpenHashSet definedStates = new IntOpenHashSet();
+    private final LongOpenHashSet capturedColumns = new LongOpenHashSet();
+    private final Int2IntOpenHashMap palette = new Int2IntOpenHashMap();
+    private final int[] paletteIds = new int[LightTraceFormat.SECTION_VOLUME];
+    private final int[] sectionIndices = new int[LightTraceFormat.SECTION_VOLUME];
+
+    private long lastFlush = System.nanoTime();
+
+    private LightTraceRecorder(ChunkProvider chunkProvider, File file, DataOutputStream out) {
+        this.chunkProvider = chunkProvider;
+        this.file = file;
+        this.out = out;
+    }
+
+    /**
+     * Opens a new trace for a lighting provider if trace recording is enabled.
+     * @return The recorder, or null if recording is disabled or the trace file could not be opened
+     */
+    public static LightTraceRecorder create(ChunkProvider chunkProvider, boolean hasBlockLight, boolean hasSkyLight) {
+        if (PhosphorConfig.TRACE_DIRECTORY == null) {
+            return null;
+        }
+
+        String worldName = WorldUtil.getWorldName(chunkProvider);
+
+        File dir = new File(PhosphorConfig.TRACE_DIRECTORY);
+        dir.mkdirs();
+
+        File file = new File(dir, worldName.replaceAll("[^A-Za-z0-9_\\-]", "_") + "-" + System.currentTimeMillis() + LightTraceFormat.FILE_EXTENSION);
+
+        LightTraceRecorder recorder;
+
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file), 1 << 16, true), 1 << 16));
+            out.writeInt(LightTraceFormat.MAGIC);
+            out.writeInt(LightTraceFormat.VERSION);
+            out.writeBoolean(hasBlockLight);
+            out.writeBoolean(hasSkyLight);
+            out.writeUTF(worldName);
+
+            recorder = new LightTraceRecorder(chunkProvider, file, out);
+        } catch (IOException e) {
+            LOGGER.error("Could not create light trace file {}", file, e);
+
+            return null;
+        }
+
+        synchronized (OPEN_RECORDERS) {
+            OPEN_RECORDERS.add(recorder);
+        }
+
+        LOGGER.info("Recording light updates of {} to {}", worldName, file);
+
+        return recorder;
+    }
+
+    private static void closeAll() {
+        synchronized (OPEN_RECORDERS) {
+            for (LightTraceRecorder recorder : OPEN_RECORDERS) {
+                recorder.close();
+            }
+
+            OPEN_RECORDERS.clear();
+        }
+    }
+
+    public synchronized void close() {
+        if (this.out == null) {
+            return;
+        }
+
+        try {
+            this.out.writeByte(LightTraceFormat.END);
+            this.out.close();
+        } catch (IOException e) {
+            LOGGER.error("Could not close light trace file {}", this.file, e);
+        }
+
+        this.out = null;
+    }
+
+    public synchronized void checkBlock(BlockPos pos) {
+        try {
+            this.writeBlockState(pos);
+            this.beginRecord(LightTraceFormat.CHECK_BLOCK);
+            this.out.writeLong(pos.asLong());
+        } catch (Exception e) {
+            this.onError(e);
+        }
+    }
+
+    public synchronized void addLightSource(BlockPos pos, int level) {
+        try {
+            this.writeBlockState(pos);
+            this.beginRecord(LightTraceFormat.ADD_LIGHT_SOURCE);
+            this.out.writeLong(pos.asLong());
+            this.out.writeByte(level);
+        } catch (Exception e) {
+            this.onError(e);
+        }
+    }
+
+    public synchronized void setSectionStatus(ChunkSectionPos pos, boolean notReady) {
+        try {
+            this.beginRecord(LightTraceFormat.SET_SECTION_STATUS);
+            this.out.writeLong(pos.asLong());
+            this.out.writeBoolean(notReady);
+        } catch (Exception e) {
+            this.onError(e);
+        }
+    }
+
+    public synchronized void enqueueSectionData(LightType type, ChunkSectionPos pos, ChunkNibbleArray lightmap, boolean nonEdge) {
+        try {
+            this.beginRecord(LightTraceFormat.ENQUEUE_SECTION_DATA);
+            this.out.writeByte(type.ordinal());
+            this.out.writeLong(pos.asLong());
+            this.out.writeBoolean(nonEdge);
+            this.out.writeBoolean(lightmap != null);
+
+            if (lightmap != null) {
+                this.out.write(lightmap.asByteArray());
+            }
+        } catch (Exception e) {
+            this.onError(e);
+        }
+    }
+
+    public synchronized void setColumnEnabled(ChunkPos pos, boolean enabled) {
+        try {
+            if (enabled) {
+                this.captureColumn(pos.x, pos.z);
+            } else {
+                this.capturedColumns.remove(pos.toLong());
+            }
+
+            this.beginRecord(LightTraceFormat.SET_COLUMN_ENABLED);
+            this.out.writeLong(pos.toLong());
+            this.out.writeBoolean(enabled);
+        } catch (Exception e) {
+            this.onError(e);
+        }
+    }
+
+    public synchronized void setRetainData(ChunkPos pos, boolean retain) {
+        try {
+            this.beginRecord(LightTraceFormat.SET_RETAIN_DATA);
+            this.out.writeLong(pos.toLong());
+            this.out.writeBoolean(retain);
+        } catch (Exception e) {
+            this.onError(e);
+        }
+    }
+
+    public synchronized void enableSourceLight(long chunkPos) {
+        try {
+            this.beginRecord(LightTraceFormat.ENABLE_SOURCE_LIGHT);
+            this.out.writeLong(chunkPos);
+        } catch (Exception e) {
+            this.onError(e);
+        }
+    }
+
+    public synchronized void enableLightUpdates(long chunkPos) {
+        try {
+            this.captureColumn(ChunkSectionPos.unpackX(chunkPos), ChunkSectionPos.unpackZ(chunkPos));
+
+            this.beginRecord(LightTraceFormat.ENABLE_LIGHT_UPDATES);
+            this.out.writeLong(chunkPos);
+        } catch (Exception e) {
+            this.onError(e);
+        }
+    }
+
+    public synchronized void doLightUpdates(int maxUpdateCount, boolean doSkylight, boolean skipEdgeLightPropagation) {
+        try {
+            this.beginRecord(LightTraceFormat.DO_LIGHT_UPDATES);
+            this.out.writeInt(maxUpdateCount);
+            this.out.writeBoolean(doSkylight);
+            this.out.writeBoolean(skipEdgeLightPropagation);
+
+            long time = System.nanoTime();
+
+            // Periodically flush the stream so that a trace is usable even if the game exits abnormally
+            if (time - this.lastFlush > FLUSH_INTERVAL) {
+                this.out.flush();
+                this.lastFlush = time;
+            }
+        } catch (Exception e) {
+            this.onError(e);
+        }
+    }
+
+    private void beginRecord(int opcode) throws IOException {
+        if (this.out == null) {
+            throw new IOException("Trace is closed");
+        }
+
+        this.out.writeByte(opcode);
+    }
+
+    private void onError(Exception e) {
+        if (this.out != null) {
+            LOGGER.error("Failed to write light trace {}, recording will be stopped", this.file, e);
+
+            this.close();
+        }
+    }
+
+    /**
+     * Snapshots the given column, which is about to be lit, and any neighbouring columns which the light engine may
+     * read from that have not been captured yet. Neighbours will be captured again once they are lit themselves, as
+     * they may still change without notifying the light engine until then.
+     */
+    private void captureColumn(int chunkX, int chunkZ) throws IOException {
+        for (int x = chunkX - 1; x <= chunkX + 1; x++) {
+            for (int z = chunkZ - 1; z <= chunkZ + 1; z++) {
+                boolean center = x == chunkX && z == chunkZ;
+
+                if (this.capturedColumns.add(ChunkPos.toLong(x, z)) || center) {
+                    this.writeChunkSnapshot(x, z);
+                }
+            }
+        }
+    }
+
+    private void writeChunkSnapshot(int chunkX, int chunkZ) throws IOException {
+        BlockView view = this.chunkProvider.getChunk(chunkX, chunkZ);
+
+        if (!(view instanceof Chunk)) {
+            // Not available yet, try again when it is needed next
+            this.capturedColumns.remove(ChunkPos.toLong(chunkX, chunkZ));
+
+            return;
+        }
+
+        ChunkSection[] sections = ((Chunk) view).getSectionArray();
+
+        for (ChunkSection section : sections) {
+            if (!ChunkSection.isEmpty(section)) {
+                this.defineSectionStates(section);
+            }
+        }
+
+        this.beginRecord(LightTraceFormat.CHUNK_SNAPSHOT);
+        this.out.writeInt(chunkX);
+        this.out.writeInt(chunkZ);
+
+        for (ChunkSection section : sections) {
+            boolean present = !ChunkSection.isEmpty(section);
+
+            this.out.writeBoolean(present);
+
+            if (present) {
+                this.writeSection(section);
+            }
+        }
+    }
+
+    private void defineSectionStates(ChunkSection section) throws IOException {
+        int[] indices = this.sectionIndices;
+
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    BlockState state = section.getBlockState(x, y, z);
+
+                    indices[(y << 8) | (z << 4) | x] = this.defineState(state);
+                }
+            }
+        }
+    }
+
+    // The states of the section must have been defined beforehand, as no other records may appear within a snapshot
+    private void writeSection(ChunkSection section) throws IOException {
+        this.defineSectionStates(section);
+
+        Int2IntOpenHashMap palette = this.palette;
+        palette.clear();
+
+        int[] indices = this.sectionIndices;
+        int[] paletteIds = this.paletteIds;
+
+        for (int i = 0; i < indices.length; i++) {
+            int id = indices[i];
+            int index = palette.getOrDefault(id, -1);
+
+            if (index < 0) {
+                index = palette.size();
+                palette.put(id, index);
+                paletteIds[index] = id;
+            }
+
+            indices[i] = index;
+        }
+
+        int paletteSize = palette.size();
+
+        writeVarInt(this.out, paletteSize);
+
+        for (int i = 0; i < paletteSize; i++) {
+            writeVarInt(this.out, paletteIds[i]);
+        }
+
+        if (paletteSize == 1) {
+            return;
+        }
+
+        for (int index : indices) {
+            if (paletteSize <= 256) {
+                this.out.writeByte(index);
+            } else {
+                this.out.writeShort(index);
+            }
+        }
+    }
+
+    private void writeBlockState(BlockPos pos) throws IOException {
+        BlockView view = this.chunkProvider.getChunk(pos.getX() >> 4, pos.getZ() >> 4);
+
+        if (view == null) {
+            return;
+        }
+
+        int id = this.defineState(view.getBlockState(pos));
+
+        this.beginRecord(LightTraceFormat.SET_BLOCK_STATE);
+        this.out.writeLong(pos.asLong());
+        writeVarInt(this.out, id);
+    }
+
+    private int defineState(BlockState state) throws IOException {
+        int id = Block.STATE_IDS.getRawId(state);
+
+        if (this.definedStates.add(id)) {
+            this.beginRecord(LightTraceFormat.DEFINE_STATE);
+            writeVarInt(this.out, id);
+            this.out.writeUTF(BlockArgumentParser.stringifyBlockState(state));
+        }
+
+        return id;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.writeByte(value);
+    }
+}
@@ -0,0 +1,23 @@
+package me.jellysquid.mods.phosphor.common.util;
+
+import net.minecraft.world.BlockView;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkProvider;
+
+public class WorldUtil {
+    /**
+     * Returns a human-readable name for the world behind the given chunk provider, distinguishing between the client
+     * and the server, e.g. {@code server-minecraft:overworld}.
+     */
+    public static String getWorldName(ChunkProvider chunkProvider) {
+        BlockView view = chunkProvider.getWorld();
+
+        if (view instanceof World) {
+            World world = (World) view;
+
+            return (world.isClient ? "client-" : "server-") + world.getRegistryKey().getValue();
+        }
+
+        return "unknown";
+    }
+}
@@ -0,0 +1,46 @@
+package me.jellysquid.mods.phosphor.common.util.chunk.light;
+
+import net.minecraft.world.chunk.ChunkNibbleArray;
+
+/**
+ * A lightmap whose backing array is shared with other lightmaps of identical contents through a
+ * {@link LightmapInterner}. Lightmaps are only interned once they have been published, so they are always copied
+ * before being written to. Nevertheless, the shared array is detached before the first write, so that other lightmaps
+ * are never affected.
+ *
+ * The shared array never leaves this lightmap, so {@link #asByteArray()} returns a copy of it, which keeps chunk data
+ * loaded again from serialized lightmaps from sharing the array.
+ */
+public class InternedChunkNibbleArray extends ChunkNibbleArray {
+    private boolean shared = true;
+
+    public InternedChunkNibbleArray(final byte[] arr) {
+        super(arr);
+    }
+
+    /**
+     * Returns the shared backing array for reading, or the detached array after this lightmap has been written to.
+     */
+    public byte[] getSharedArray() {
+        return this.byteArray;
+    }
+
+    @Override
+    public void set(final int x, final int y, final int z, final int value) {
+        if (this.shared) {
+            this.byteArray = this.byteArray.clone();
+            this.shared = false;
+        }
+
+        super.set(x, y, z, value);
+    }
+
+    @Override
+    public byte[] asByteArray() {
+        if (this.shared) {
+            return this.byteArray.clone();
+        }
+
+        return super.asByteArray();
+    }
+}
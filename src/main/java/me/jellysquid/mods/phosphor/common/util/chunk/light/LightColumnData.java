@@ -0,0 +1,175 @@
+package me.jellysquid.mods.phosphor.common.util.chunk.light;
+
+import java.util.Arrays;
+
+/**
+ * Holds the state a light storage tracks for a single chunk column and its 18 sections, from directly below to directly
+ * above the world. This replaces a separate hash set or map per kind of state, so that all state of a section or column
+ * is found with a single hash lookup, and iterating over the sections of a column does not need any further lookups.
+ *
+ * Sections are addressed by their y-coordinate. Per-section flags are stored as bit masks, where bit 0 belongs to the
+ * lowest section of the respective range:
+ * - Lightmaps and their complexities cover the 18 sections from y = -1 to 16.
+ * - The non-optimizable flag follows the section levels of the storage, which also reach one section further, so it
+ * covers the 20 sections from y = -2 to 17.
+ * Apart from {@link #isNonOptimizable(int)}, addressing a section outside of the respective range throws an
+ * {@link IllegalArgumentException}.
+ *
+ * Columns without any state are dropped by the storage, see {@link #isEmpty()}.
+ */
+public class LightColumnData {
+    public static final int MIN_SECTION_Y = -1;
+    public static final int SECTIONS = 18;
+
+    private static final int MIN_LEVEL_SECTION_Y = MIN_SECTION_Y - 1;
+    private static final int LEVEL_SECTIONS = SECTIONS + 2;
+
+    // Whether light updates are enabled for the column
+    private boolean enabled;
+
+    // Whether the sky light storage has loaded the section above the world to light the column initially
+    private boolean skylightPreInitialized;
+
+    // The sections which have a lightmap with a complexity, or a non-zero vanilla lightmap complexity
+    private int lightmapMask;
+    private int vanillaComplexityMask;
+
+    // The sections whose level disallows removing their lightmaps, see getLevelBit(int)
+    private int nonOptimizableMask;
+
+    private final int[] complexities = new int[SECTIONS];
+
+    // Only allocated by the sky light storage
+    private int[] vanillaComplexities;
+
+    public LightColumnData() {
+        Arrays.fill(this.complexities, -1);
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isSkylightPreInitialized() {
+        return this.skylightPreInitialized;
+    }
+
+    public void setSkylightPreInitialized(final boolean preInitialized) {
+        this.skylightPreInitialized = preInitialized;
+    }
+
+    /**
+     * Returns whether any section of this column is non-optimizable.
+     */
+    public boolean isNonOptimizable() {
+        return this.nonOptimizableMask != 0;
+    }
+
+    /**
+     * Returns whether the given section is non-optimizable. Unlike the other accessors, this accepts any section, as
+     * the section level propagator also queries the neighbours of the outermost sections.
+     */
+    public boolean isNonOptimizable(final int y) {
+        final int idx = y - MIN_LEVEL_SECTION_Y;
+
+        return idx >= 0 && idx < LEVEL_SECTIONS && (this.nonOptimizableMask & (1 << idx)) != 0;
+    }
+
+    public void setNonOptimizable(final int y, final boolean nonOptimizable) {
+        if (nonOptimizable) {
+            this.nonOptimizableMask |= getLevelBit(y);
+        } else {
+            this.nonOptimizableMask &= ~getLevelBit(y);
+        }
+    }
+
+    /**
+     * Returns the complexity of the lightmap of the given section, or -1 if it has none.
+     */
+    public int getComplexity(final int y) {
+        return this.complexities[getIndex(y)];
+    }
+
+    /**
+     * Sets the complexity of the lightmap of the given section, where -1 removes it.
+     *
+     * @return The previous complexity, or -1 if there was none
+     */
+    public int setComplexity(final int y, final int complexity) {
+        final int idx = getIndex(y);
+        final int prev = this.complexities[idx];
+
+        this.complexities[idx] = complexity;
+
+        if (complexity == -1) {
+            this.lightmapMask &= ~getBit(y);
+        } else {
+            this.lightmapMask |= getBit(y);
+        }
+
+        return prev;
+    }
+
+    /**
+     * Returns the sum of the light values in the bottom layer of the lightmap of the given section, which the vanilla
+     * lightmaps below are derived from.
+     */
+    public int getVanillaComplexity(final int y) {
+        return this.vanillaComplexities == null ? 0 : this.vanillaComplexities[getIndex(y)];
+    }
+
+    public void setVanillaComplexity(final int y, final int complexity) {
+        if (this.vanillaComplexities == null) {
+            if (complexity == 0) {
+                return;
+            }
+
+            this.vanillaComplexities = new int[SECTIONS];
+        }
+
+        this.vanillaComplexities[getIndex(y)] = complexity;
+
+        if (complexity == 0) {
+            this.vanillaComplexityMask &= ~getBit(y);
+        } else {
+            this.vanillaComplexityMask |= getBit(y);
+        }
+    }
+
+    /**
+     * Returns whether this column holds no state at all and can be dropped.
+     */
+    public boolean isEmpty() {
+        return !this.enabled && !this.skylightPreInitialized && this.lightmapMask == 0 && this.vanillaComplexityMask == 0 && this.nonOptimizableMask == 0;
+    }
+
+    // Bit y + 1 for the 18 sections which can hold a lightmap
+    private static int getBit(final int y) {
+        return 1 << getIndex(y);
+    }
+
+    private static int getIndex(final int y) {
+        final int idx = y - MIN_SECTION_Y;
+
+        if (idx < 0 || idx >= SECTIONS) {
+            throw new IllegalArgumentException("Section is outside of the lightmap range: " + y);
+        }
+
+        return idx;
+    }
+
+    // Bit y + 2 for the 20 sections which can have a section level
+    private static int getLevelBit(final int y) {
+        final int idx = y - MIN_LEVEL_SECTION_Y;
+
+        if (idx < 0 || idx >= LEVEL_SECTIONS) {
+            throw new IllegalArgumentException("Section is outside of the level range: " + y);
+        }
+
+        return 1 << idx;
+    }
+}
@@ -0,0 +1,143 @@
+package me.jellysquid.mods.phosphor.common.util.chunk.light;
+
+import me.jellysquid.mods.phosphor.common.config.PhosphorConfig;
+import net.minecraft.world.chunk.ChunkNibbleArray;
+
+import java.util.Arrays;
+
+/**
+ * A pool of lightmap arrays for a single light storage, which hands the arrays of discarded lightmaps to new ones
+ * instead of allocating fresh arrays. The pool must only be accessed by the thread owning the storage.
+ *
+ * Once a lightmap has been published, other threads may hold on to it for an unbounded time, e.g. through an older
+ * published view of the storage, or through its array stored by the chunk serializer. There is no way to tell when the
+ * last of them is gone, so the arrays of published lightmaps are never recycled. Only lightmaps which have been
+ * created and discarded between the same two publishes are recycled, such as lightmaps which are replaced by their
+ * packed form when they are published for the first time. They have never been reachable from another thread, so
+ * their arrays are reused right away.
+ *
+ * Only lightmaps created by a pool are recycled, and only as long as their array has not been handed out through
+ * {@link ChunkNibbleArray#asByteArray()} or shared otherwise. See {@link PooledChunkNibbleArray}.
+ */
+public class LightmapArrayPool {
+    private static final int MAX_POOLED_ARRAYS = 256;
+
+    private final byte[][] pool = new byte[MAX_POOLED_ARRAYS][];
+    private int pooledCount;
+
+    private long publishCount;
+
+    /**
+     * Creates an initialized lightmap with all light levels set to zero.
+     */
+    public ChunkNibbleArray create() {
+        return this.createFilled((byte) 0);
+    }
+
+    /**
+     * Creates an initialized lightmap with every byte of its data set to the given value.
+     */
+    public ChunkNibbleArray createFilled(final byte value) {
+        if (PhosphorConfig.OFF_HEAP_LIGHTMAPS) {
+            return LightmapFactory.createFilled(value);
+        }
+
+        byte[] arr = this.take();
+
+        if (arr == null) {
+            arr = new byte[2048];
+        }
+
+        Arrays.fill(arr, value);
+
+        return new PooledChunkNibbleArray(arr, this.publishCount);
+    }
+
+    /**
+     * Creates a writable copy of the given lightmap, which may be readonly.
+     */
+    public ChunkNibbleArray copy(final ChunkNibbleArray lightmap) {
+        // Packed lightmaps stay packed until a write does not fit anymore
+        if (lightmap instanceof PackedChunkNibbleArray && ((PackedChunkNibbleArray) lightmap).isPacked()) {
+            return lightmap.copy();
+        }
+
+        if (PhosphorConfig.OFF_HEAP_LIGHTMAPS || lightmap.isUninitialized()) {
+            return LightmapFactory.copy(lightmap);
+        }
+
+        byte[] src = null;
+
+        // Read the arrays directly where possible, as handing them out would prevent them from being recycled or
+        // would clone them
+        if (lightmap instanceof InternedChunkNibbleArray) {
+            src = ((InternedChunkNibbleArray) lightmap).getSharedArray();
+        } else if (lightmap instanceof PooledChunkNibbleArray) {
+            src = ((PooledChunkNibbleArray) lightmap).getExclusiveArray();
+        }
+
+        if (src == null) {
+            src = lightmap.asByteArray();
+        }
+
+        byte[] arr = this.take();
+
+        if (arr == null) {
+            arr = new byte[2048];
+        }
+
+        System.arraycopy(src, 0, arr, 0, arr.length);
+
+        return new PooledChunkNibbleArray(arr, this.publishCount);
+    }
+
+    /**
+     * Hands the array of a lightmap which has been removed from the storage back to this pool, if it has never been
+     * published or shared.
+     */
+    public void retire(final ChunkNibbleArray lightmap) {
+        if (!(lightmap instanceof PooledChunkNibbleArray) || this.pooledCount == MAX_POOLED_ARRAYS) {
+            return;
+        }
+
+        final PooledChunkNibbleArray pooled = (PooledChunkNibbleArray) lightmap;
+
+        if (pooled.getCreatedAt() != this.publishCount) {
+            return;
+        }
+
+        final byte[] arr = pooled.getExclusiveArray();
+
+        if (arr != null) {
+            // The lightmap is discarded, so it must not hand out the array anymore either
+            pooled.markShared();
+
+            this.pool[this.pooledCount++] = arr;
+        }
+    }
+
+    /**
+     * Must be called after each publish of the storage.
+     */
+    public void onPublish() {
+        this.publishCount++;
+    }
+
+    /**
+     * Returns the number of arrays which are ready for reuse.
+     */
+    public int getPooledCount() {
+        return this.pooledCount;
+    }
+
+    private byte[] take() {
+        if (this.pooledCount == 0) {
+            return null;
+        }
+
+        final byte[] arr = this.pool[--this.pooledCount];
+        this.pool[this.pooledCount] = null;
+
+        return arr;
+    }
+}
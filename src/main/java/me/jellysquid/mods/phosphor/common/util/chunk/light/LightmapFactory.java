@@ -0,0 +1,49 @@
+package me.jellysquid.mods.phosphor.common.util.chunk.light;
+
+import me.jellysquid.mods.phosphor.common.config.PhosphorConfig;
+import net.minecraft.world.chunk.ChunkNibbleArray;
+
+import java.util.Arrays;
+
+/**
+ * Creates the lightmaps owned by the light engines, either on the heap as vanilla does or off-heap if enabled through
+ * {@link PhosphorConfig#OFF_HEAP_LIGHTMAPS}. Lightmaps loaded from disk or received over the network are created by
+ * vanilla on the heap, and only move off-heap once the light engine copies them for writing.
+ */
+public class LightmapFactory {
+    public static ChunkNibbleArray create() {
+        if (PhosphorConfig.OFF_HEAP_LIGHTMAPS) {
+            return new OffHeapChunkNibbleArray();
+        }
+
+        return new ChunkNibbleArray();
+    }
+
+    /**
+     * Creates an initialized lightmap with every byte of its data set to the given value.
+     */
+    public static ChunkNibbleArray createFilled(byte value) {
+        if (PhosphorConfig.OFF_HEAP_LIGHTMAPS) {
+            OffHeapChunkNibbleArray lightmap = new OffHeapChunkNibbleArray();
+            lightmap.fill(value);
+
+            return lightmap;
+        }
+
+        byte[] arr = new byte[2048];
+        Arrays.fill(arr, value);
+
+        return new ChunkNibbleArray(arr);
+    }
+
+    /**
+     * Creates a writable copy of the given lightmap, which may be readonly.
+     */
+    public static ChunkNibbleArray copy(ChunkNibbleArray lightmap) {
+        if (PhosphorConfig.OFF_HEAP_LIGHTMAPS) {
+            return OffHeapChunkNibbleArray.copyOf(lightmap);
+        }
+
+        return lightmap.copy();
+    }
+}
@@ -0,0 +1,97 @@
+package me.jellysquid.mods.phosphor.common.util.chunk.light;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.world.chunk.ChunkNibbleArray;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * Deduplicates the contents of lightmaps of a single light storage, so that identical lightmaps share one backing
+ * array. Many sections repeat the same few light patterns, e.g. the sky light gradient below the sea level of oceans.
+ * The interner must only be accessed by the thread owning the storage.
+ *
+ * The table only holds weak references to the shared arrays, which are dropped once the last lightmap using them is
+ * gone, so no reference counting is needed when lightmaps are copied or removed.
+ */
+public class LightmapInterner {
+    private final Int2ObjectOpenHashMap<ArrayReference> arrays = new Int2ObjectOpenHashMap<>();
+    private final ReferenceQueue<byte[]> releaseQueue = new ReferenceQueue<>();
+
+    /**
+     * Returns an {@link InternedChunkNibbleArray} with the same contents as the given lightmap, which must not be
+     * written to anymore. The array of the lightmap becomes the shared array if there is no identical one yet and it
+     * is exclusively owned by the lightmap.
+     *
+     * @return The interned lightmap, or null if the lightmap cannot be interned
+     */
+    public InternedChunkNibbleArray intern(final ChunkNibbleArray lightmap) {
+        this.removeReleasedArrays();
+
+        // Only regular heap lightmaps expose their contents through their backing array
+        if ((lightmap.getClass() != ChunkNibbleArray.class && lightmap.getClass() != PooledChunkNibbleArray.class) || lightmap.isUninitialized()) {
+            return null;
+        }
+
+        final PooledChunkNibbleArray pooled = lightmap instanceof PooledChunkNibbleArray ? (PooledChunkNibbleArray) lightmap : null;
+        final byte[] ownedArr = pooled == null ? null : pooled.getExclusiveArray();
+        final byte[] arr = ownedArr != null ? ownedArr : lightmap.asByteArray();
+
+        final int hash = Arrays.hashCode(arr);
+        final ArrayReference ref = this.arrays.get(hash);
+        final byte[] sharedArr = ref == null ? null : ref.get();
+
+        if (sharedArr != null) {
+            // Hash collisions are rare enough to not intern the lightmap at all
+            return Arrays.equals(sharedArr, arr) ? new InternedChunkNibbleArray(sharedArr) : null;
+        }
+
+        final byte[] newSharedArr;
+
+        if (ownedArr != null) {
+            pooled.markShared();
+            newSharedArr = ownedArr;
+        } else {
+            // The array may have been handed out through asByteArray(), so it cannot be trusted to stay unmodified
+            newSharedArr = arr.clone();
+        }
+
+        this.arrays.put(hash, new ArrayReference(newSharedArr, hash, this.releaseQueue));
+
+        return new InternedChunkNibbleArray(newSharedArr);
+    }
+
+    /**
+     * Returns the number of distinct shared arrays which are currently in use.
+     */
+    public int getSharedArrayCount() {
+        this.removeReleasedArrays();
+
+        return this.arrays.size();
+    }
+
+    private void removeReleasedArrays() {
+        Reference<? extends byte[]> ref;
+
+        while ((ref = this.releaseQueue.poll()) != null) {
+            final int hash = ((ArrayReference) ref).hash;
+
+            // The entry might have been replaced by a new array with the same hash already
+            if (this.arrays.get(hash) == ref) {
+                this.arrays.remove(hash);
+            }
+        }
+    }
+
+    private static class ArrayReference extends WeakReference<byte[]> {
+        private final int hash;
+
+        private ArrayReference(final byte[] referent, final int hash, final ReferenceQueue<byte[]> queue) {
+            super(referent, queue);
+
+            this.hash = hash;
+        }
+    }
+}
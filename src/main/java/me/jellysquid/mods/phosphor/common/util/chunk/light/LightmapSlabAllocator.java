@@ -0,0 +1,126 @@
+package me.jellysquid.mods.phosphor.common.util.chunk.light;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hands out 2048-byte slots for {@link OffHeapChunkNibbleArray} from large direct buffers, so that the data of resident
+ * lightmaps does not live on the Java heap.
+ *
+ * Lightmaps are shared with other threads through the published light storage, so there is no single point at which
+ * the light engine knows that a lightmap is no longer read. Slots are therefore only released once their lightmap has
+ * been garbage collected, which is observed through a phantom reference per slot. Released slots are put on a free
+ * list when the next slot is allocated. Slabs are never returned to the operating system, so the memory in use is
+ * bounded by the peak number of lightmaps.
+ *
+ * Lightmaps are created by the server light thread as well as the client thread, so access is synchronized. This is
+ * only done once per lightmap allocation, and never when accessing the light values.
+ */
+public class LightmapSlabAllocator {
+    public static final LightmapSlabAllocator INSTANCE = new LightmapSlabAllocator();
+
+    static final int SLOT_SIZE = 2048;
+
+    // 1 MiB per slab
+    private static final int SLOTS_PER_SLAB = 512;
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final IntArrayList freeSlots = new IntArrayList();
+
+    private final ReferenceQueue<OffHeapChunkNibbleArray> releaseQueue = new ReferenceQueue<>();
+
+    // Keeps the phantom references reachable until they have been enqueued
+    private SlotReference[] references = new SlotReference[0];
+
+    private LightmapSlabAllocator() {
+
+    }
+
+    /**
+     * Allocates a zeroed slot which is released once the given lightmap has been garbage collected.
+     *
+     * @return The index of the slot, see {@link #getSlab(int)} and {@link #getOffset(int)}
+     */
+    synchronized int allocate(OffHeapChunkNibbleArray owner) {
+        this.releaseCollectedSlots();
+
+        if (this.freeSlots.isEmpty()) {
+            this.addSlab();
+        }
+
+        int slot = this.freeSlots.popInt();
+        this.references[slot] = new SlotReference(owner, slot, this.releaseQueue);
+
+        ByteBuffer slab = this.getSlab(slot);
+        int offset = getOffset(slot);
+
+        for (int i = 0; i < SLOT_SIZE; i += Long.BYTES) {
+            slab.putLong(offset + i, 0L);
+        }
+
+        return slot;
+    }
+
+    synchronized ByteBuffer getSlab(int slot) {
+        return this.slabs.get(slot / SLOTS_PER_SLAB);
+    }
+
+    static int getOffset(int slot) {
+        return (slot % SLOTS_PER_SLAB) * SLOT_SIZE;
+    }
+
+    private void addSlab() {
+        int firstSlot = this.slabs.size() * SLOTS_PER_SLAB;
+
+        this.slabs.add(ByteBuffer.allocateDirect(SLOTS_PER_SLAB * SLOT_SIZE));
+        this.references = Arrays.copyOf(this.references, firstSlot + SLOTS_PER_SLAB);
+
+        // Push in reverse so that slots are handed out in ascending order
+        for (int slot = firstSlot + SLOTS_PER_SLAB - 1; slot >= firstSlot; slot--) {
+            this.freeSlots.add(slot);
+        }
+    }
+
+    private void releaseCollectedSlots() {
+        Reference<? extends OffHeapChunkNibbleArray> ref;
+
+        while ((ref = this.releaseQueue.poll()) != null) {
+            int slot = ((SlotReference) ref).slot;
+
+            this.references[slot] = null;
+            this.freeSlots.add(slot);
+        }
+    }
+
+    /**
+     * Returns the number of slots which are currently in use. This includes slots whose lightmap has already been
+     * garbage collected, but which have not been released yet.
+     */
+    public synchronized int getUsedSlots() {
+        return (this.slabs.size() * SLOTS_PER_SLAB) - this.freeSlots.size();
+    }
+
+    /**
+     * Returns the total amount of off-heap memory reserved for lightmaps, in bytes.
+     */
+    public synchronized long getReservedBytes() {
+        return (long) this.slabs.size() * SLOTS_PER_SLAB * SLOT_SIZE;
+    }
+
+    private static class SlotReference extends PhantomReference<OffHeapChunkNibbleArray> {
+        private final int slot;
+
+        private SlotReference(OffHeapChunkNibbleArray referent, int slot, ReferenceQueue<OffHeapChunkNibbleArray> queue) {
+            super(referent, queue);
+
+            this.slot = slot;
+        }
+    }
+}
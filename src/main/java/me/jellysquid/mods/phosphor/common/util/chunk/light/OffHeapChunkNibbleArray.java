@@ -0,0 +1,132 @@
+package me.jellysquid.mods.phosphor.common.util.chunk.light;
+
+import me.jellysquid.mods.phosphor.common.chunk.light.IReadonly;
+import net.minecraft.world.chunk.ChunkNibbleArray;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A lightmap whose data lives in a slot of {@link LightmapSlabAllocator} instead of a heap array. Like vanilla
+ * lightmaps, the slot is only allocated once the lightmap is first written to.
+ *
+ * {@link #asByteArray()} returns a copy of the data, as there is no backing array which could be handed out. Callers
+ * must therefore not write into the returned array, which holds for all vanilla callers as they only serialize it.
+ *
+ * Off-heap lightmaps are never recycled by the {@link LightmapArrayPool}, as they have no heap array, and their slots are
+ * only released once they are garbage collected.
+ */
+public class OffHeapChunkNibbleArray extends ChunkNibbleArray {
+    private ByteBuffer slab;
+    private int offset;
+
+    public OffHeapChunkNibbleArray() {
+    }
+
+    @Override
+    public int get(int x, int y, int z) {
+        ByteBuffer slab = this.slab;
+
+        if (slab == null) {
+            return 0;
+        }
+
+        int idx = this.getIndex(x, y, z);
+
+        return (slab.get(this.offset + (idx >> 1)) >>> ((idx & 1) << 2)) & 15;
+    }
+
+    @Override
+    public void set(int x, int y, int z, int value) {
+        if (((IReadonly) this).isReadonly()) {
+            throw new UnsupportedOperationException("Cannot modify readonly ChunkNibbleArray");
+        }
+
+        ByteBuffer slab = this.getOrAllocateSlab();
+
+        int idx = this.getIndex(x, y, z);
+        int byteIdx = this.offset + (idx >> 1);
+        int shift = (idx & 1) << 2;
+
+        slab.put(byteIdx, (byte) ((slab.get(byteIdx) & ~(15 << shift)) | ((value & 15) << shift)));
+    }
+
+    /**
+     * Sets every byte of the data to the given value, e.g. {@code -1} to set all light levels to 15.
+     */
+    public void fill(byte value) {
+        ByteBuffer slab = this.getOrAllocateSlab();
+
+        for (int i = 0; i < LightmapSlabAllocator.SLOT_SIZE; i++) {
+            slab.put(this.offset + i, value);
+        }
+    }
+
+    @Override
+    public byte[] asByteArray() {
+        ByteBuffer slab = this.slab;
+        byte[] arr = new byte[LightmapSlabAllocator.SLOT_SIZE];
+
+        // Don't take a slot just to hand out zeros
+        if (slab == null) {
+            return arr;
+        }
+
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = slab.get(this.offset + i);
+        }
+
+        return arr;
+    }
+
+    @Override
+    public ChunkNibbleArray copy() {
+        OffHeapChunkNibbleArray copy = new OffHeapChunkNibbleArray();
+
+        if (this.slab != null) {
+            copy.copyFrom(this.slab, this.offset);
+        }
+
+        return copy;
+    }
+
+    /**
+     * Creates an off-heap lightmap holding the same data as the given lightmap.
+     */
+    public static OffHeapChunkNibbleArray copyOf(ChunkNibbleArray lightmap) {
+        if (lightmap instanceof OffHeapChunkNibbleArray) {
+            return (OffHeapChunkNibbleArray) lightmap.copy();
+        }
+
+        OffHeapChunkNibbleArray copy = new OffHeapChunkNibbleArray();
+
+        if (!lightmap.isUninitialized()) {
+            copy.copyFrom(ByteBuffer.wrap(lightmap.asByteArray()), 0);
+        }
+
+        return copy;
+    }
+
+    private void copyFrom(ByteBuffer src, int srcOffset) {
+        ByteBuffer slab = this.getOrAllocateSlab();
+
+        for (int i = 0; i < LightmapSlabAllocator.SLOT_SIZE; i += Long.BYTES) {
+            slab.putLong(this.offset + i, src.getLong(srcOffset + i));
+        }
+    }
+
+    @Override
+    public boolean isUninitialized() {
+        return this.slab == null;
+    }
+
+    private ByteBuffer getOrAllocateSlab() {
+        if (this.slab == null) {
+            int slot = LightmapSlabAllocator.INSTANCE.allocate(this);
+
+            this.offset = LightmapSlabAllocator.getOffset(slot);
+            this.slab = LightmapSlabAllocator.INSTANCE.getSlab(slot);
+        }
+
+        return this.slab;
+    }
+}
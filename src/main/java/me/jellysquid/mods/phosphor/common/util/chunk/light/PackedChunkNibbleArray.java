@@ -0,0 +1,217 @@
+package me.jellysquid.mods.phosphor.common.util.chunk.light;
+
+import net.minecraft.world.chunk.ChunkNibbleArray;
+
+/**
+ * A writable lightmap which stores its light values as indices into a palette of at most 4 distinct values. Most
+ * lightmaps consist of a single value, such as 0 underground or 15 in open air, which only takes the palette itself.
+ * Lightmaps with 2 distinct values take 512 bytes, and lightmaps with 3 or 4 distinct values take 1024 bytes, compared
+ * to 2048 bytes for a regular lightmap.
+ *
+ * Writes which do not fit into the palette expand the lightmap into the regular representation, after which it behaves
+ * like a regular lightmap.
+ */
+public class PackedChunkNibbleArray extends ChunkNibbleArray {
+    private static final int MAX_PALETTE_SIZE = 4;
+
+    // Null once the lightmap has been expanded
+    private byte[] palette;
+    private int paletteSize;
+
+    // The number of bits per palette index, which is either 0, 1 or 2. The indices are null for 0 bits
+    private int bits;
+    private long[] indices;
+
+    private PackedChunkNibbleArray(final byte[] palette, final int paletteSize, final int bits, final long[] indices) {
+        this.palette = palette;
+        this.paletteSize = paletteSize;
+        this.bits = bits;
+        this.indices = indices;
+    }
+
+    /**
+     * Packs the given lightmap if it consists of at most 4 distinct values.
+     *
+     * @return The packed lightmap, or null if the lightmap cannot be packed
+     */
+    public static PackedChunkNibbleArray pack(final ChunkNibbleArray lightmap) {
+        final byte[] palette = new byte[MAX_PALETTE_SIZE];
+        int paletteSize = 0;
+
+        // Determine the palette first, so that lightmaps which cannot be packed are rejected without allocating indices
+        int seen = 0;
+
+        for (int i = 0; i < 4096; i++) {
+            final int value = lightmap.get(i & 15, i >> 8, (i >> 4) & 15);
+
+            if ((seen & (1 << value)) == 0) {
+                if (paletteSize == MAX_PALETTE_SIZE) {
+                    return null;
+                }
+
+                seen |= 1 << value;
+                palette[paletteSize++] = (byte) value;
+            }
+        }
+
+        final int bits = getBits(paletteSize);
+        final PackedChunkNibbleArray packed = new PackedChunkNibbleArray(palette, paletteSize, bits, bits == 0 ? null : new long[(4096 * bits) >> 6]);
+
+        if (bits != 0) {
+            for (int i = 0; i < 4096; i++) {
+                packed.setPaletteIndex(i, packed.getPaletteIndex(lightmap.get(i & 15, i >> 8, (i >> 4) & 15)));
+            }
+        }
+
+        return packed;
+    }
+
+    /**
+     * Returns whether this lightmap is still packed, i.e. has not been expanded by a write.
+     */
+    public boolean isPacked() {
+        return this.palette != null;
+    }
+
+    @Override
+    public int get(final int x, final int y, final int z) {
+        if (this.palette == null) {
+            return super.get(x, y, z);
+        }
+
+        return this.getByIndex(this.getIndex(x, y, z));
+    }
+
+    @Override
+    public void set(final int x, final int y, final int z, final int value) {
+        if (this.palette == null) {
+            super.set(x, y, z, value);
+            return;
+        }
+
+        int paletteIdx = this.getPaletteIndex(value & 15);
+
+        if (paletteIdx < 0) {
+            if (this.paletteSize == MAX_PALETTE_SIZE) {
+                this.expand();
+
+                super.set(x, y, z, value);
+                return;
+            }
+
+            paletteIdx = this.paletteSize;
+
+            this.palette[this.paletteSize++] = (byte) (value & 15);
+            this.resize(getBits(this.paletteSize));
+        }
+
+        if (this.bits != 0) {
+            this.setPaletteIndex(this.getIndex(x, y, z), paletteIdx);
+        }
+    }
+
+    /**
+     * Returns a new array holding the light values, which is copied from a template if this lightmap consists of a
+     * single value.
+     */
+    @Override
+    public byte[] asByteArray() {
+        if (this.palette == null) {
+            return super.asByteArray();
+        }
+
+        if (this.bits == 0) {
+            return UniformLightArrays.create(this.palette[0]);
+        }
+
+        return this.unpack();
+    }
+
+    private byte[] unpack() {
+        final byte[] arr = new byte[2048];
+
+        for (int i = 0; i < 2048; i++) {
+            final int idx = i << 1;
+
+            arr[i] = (byte) (this.getByIndex(idx) | (this.getByIndex(idx + 1) << 4));
+        }
+
+        return arr;
+    }
+
+    @Override
+    public ChunkNibbleArray copy() {
+        if (this.palette == null) {
+            return super.copy();
+        }
+
+        return new PackedChunkNibbleArray(this.palette.clone(), this.paletteSize, this.bits, this.indices == null ? null : this.indices.clone());
+    }
+
+    @Override
+    public boolean isUninitialized() {
+        return this.palette == null && super.isUninitialized();
+    }
+
+    private void expand() {
+        this.byteArray = this.unpack();
+
+        this.palette = null;
+        this.indices = null;
+    }
+
+    private void resize(final int bits) {
+        if (bits == this.bits) {
+            return;
+        }
+
+        final int oldBits = this.bits;
+        final long[] oldIndices = this.indices;
+
+        this.bits = bits;
+        this.indices = new long[(4096 * bits) >> 6];
+
+        // Palette indices are kept when growing, so existing entries can be copied over directly
+        if (oldBits != 0) {
+            for (int i = 0; i < 4096; i++) {
+                this.setPaletteIndex(i, readPaletteIndex(oldIndices, oldBits, i));
+            }
+        }
+    }
+
+    // Looks up the light value at the given index in vanilla order
+    private int getByIndex(final int idx) {
+        if (this.bits == 0) {
+            return this.palette[0];
+        }
+
+        return this.palette[readPaletteIndex(this.indices, this.bits, idx)];
+    }
+
+    private static int readPaletteIndex(final long[] indices, final int bits, final int idx) {
+        final int bitIdx = idx * bits;
+
+        return (int) (indices[bitIdx >>> 6] >>> (bitIdx & 63)) & ((1 << bits) - 1);
+    }
+
+    private void setPaletteIndex(final int idx, final int paletteIdx) {
+        final int bitIdx = idx * this.bits;
+        final int shift = bitIdx & 63;
+
+        this.indices[bitIdx >>> 6] = (this.indices[bitIdx >>> 6] & ~(((1L << this.bits) - 1) << shift)) | ((long) paletteIdx << shift);
+    }
+
+    private int getPaletteIndex(final int value) {
+        for (int i = 0; i < this.paletteSize; i++) {
+            if (this.palette[i] == value) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int getBits(final int paletteSize) {
+        return paletteSize <= 1 ? 0 : paletteSize <= 2 ? 1 : 2;
+    }
+}
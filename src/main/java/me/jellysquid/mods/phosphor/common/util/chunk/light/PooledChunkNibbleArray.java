@@ -0,0 +1,48 @@
+package me.jellysquid.mods.phosphor.common.util.chunk.light;
+
+import net.minecraft.world.chunk.ChunkNibbleArray;
+
+/**
+ * A lightmap created by a {@link LightmapArrayPool}, which keeps the state the pool needs to decide whether the backing
+ * array can be recycled once the lightmap is discarded. The state lives in this subclass instead of every
+ * {@link ChunkNibbleArray}, so lightmaps outside of the server light storages do not pay for it.
+ */
+public class PooledChunkNibbleArray extends ChunkNibbleArray {
+    // The number of publishes of the owning storage when this lightmap was created
+    private final long createdAt;
+
+    // Whether another object may keep a reference to the backing array
+    private boolean shared;
+
+    PooledChunkNibbleArray(final byte[] arr, final long createdAt) {
+        super(arr);
+
+        this.createdAt = createdAt;
+    }
+
+    long getCreatedAt() {
+        return this.createdAt;
+    }
+
+    /**
+     * Marks the backing array as referenced by another object, so that it is never recycled.
+     */
+    public void markShared() {
+        this.shared = true;
+    }
+
+    /**
+     * Returns the backing array if it is still exclusively owned by this lightmap, otherwise null. This does not
+     * hand out the array, so the caller must not keep a reference to it.
+     */
+    public byte[] getExclusiveArray() {
+        return this.shared ? null : this.byteArray;
+    }
+
+    @Override
+    public byte[] asByteArray() {
+        this.shared = true;
+
+        return super.asByteArray();
+    }
+}
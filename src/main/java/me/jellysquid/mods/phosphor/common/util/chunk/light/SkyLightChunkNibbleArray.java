@@ -3,23 +3,66 @@ package me.jellysquid.mods.phosphor.common.util.chunk.light;
 import net.minecraft.world.chunk.ChunkNibbleArray;
 
 public class SkyLightChunkNibbleArray extends ReadonlyChunkNibbleArray {
+    // Referenced directly instead of through its backing array, as lightmaps are not necessarily backed by an array
+    private final ChunkNibbleArray inheritedLightmap;
+
     public SkyLightChunkNibbleArray(final ChunkNibbleArray inheritedLightmap) {
-        super(inheritedLightmap.asByteArray());
+        this.inheritedLightmap = inheritedLightmap;
+
+        // The inherited lightmap becomes reachable through this one, so its array must never be recycled
+        if (inheritedLightmap instanceof PooledChunkNibbleArray) {
+            ((PooledChunkNibbleArray) inheritedLightmap).markShared();
+        }
     }
 
     @Override
-    protected int getIndex(final int x, final int y, final int z) {
-        return super.getIndex(x, 0, z);
+    public int get(final int x, final int y, final int z) {
+        return this.inheritedLightmap.get(x, 0, z);
     }
 
+    /**
+     * Copies the array from a template if all light values are the same, which is the case for most sections below a
+     * fully exposed section, instead of expanding the bottom layer of the inherited lightmap.
+     */
     @Override
     public byte[] asByteArray() {
+        final int value = this.inheritedLightmap.get(0, 0, 0);
+
+        for (int z = 0; z < 16; ++z) {
+            for (int x = 0; x < 16; ++x) {
+                if (this.inheritedLightmap.get(x, 0, z) != value) {
+                    return this.expand();
+                }
+            }
+        }
+
+        return UniformLightArrays.create(value);
+    }
+
+    @Override
+    public ChunkNibbleArray copy() {
+        return new ChunkNibbleArray(this.expand());
+    }
+
+    private byte[] expand() {
         byte[] byteArray = new byte[2048];
 
-        for(int i = 0; i < 16; ++i) {
-            System.arraycopy(this.byteArray, 0, byteArray, i * 128, 128);
+        // The bottom layer of the inherited lightmap occupies the first 128 bytes
+        for (int z = 0; z < 16; ++z) {
+            for (int x = 0; x < 16; x += 2) {
+                byteArray[(z << 3) | (x >> 1)] = (byte) (this.inheritedLightmap.get(x, 0, z) | (this.inheritedLightmap.get(x + 1, 0, z) << 4));
+            }
+        }
+
+        for(int i = 1; i < 16; ++i) {
+            System.arraycopy(byteArray, 0, byteArray, i * 128, 128);
         }
 
         return byteArray;
     }
+
+    @Override
+    public boolean isUninitialized() {
+        return false;
+    }
 }
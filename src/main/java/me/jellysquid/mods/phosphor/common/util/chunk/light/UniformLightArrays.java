@@ -0,0 +1,29 @@
+package me.jellysquid.mods.phosphor.common.util.chunk.light;
+
+import java.util.Arrays;
+
+/**
+ * Templates of lightmap arrays with all light values set to the same level, which uniform lightmaps copy from in
+ * {@link net.minecraft.world.chunk.ChunkNibbleArray#asByteArray()} instead of expanding their data value by value.
+ * Readonly lightmaps are serialized for every saved chunk, and most of them are uniform.
+ *
+ * The templates never leave this class, as callers of {@link net.minecraft.world.chunk.ChunkNibbleArray#asByteArray()}
+ * are free to keep or modify the returned array.
+ */
+public class UniformLightArrays {
+    private static final byte[][] TEMPLATES = new byte[16][];
+
+    static {
+        for (int i = 0; i < 16; i++) {
+            TEMPLATES[i] = new byte[2048];
+            Arrays.fill(TEMPLATES[i], (byte) (i | (i << 4)));
+        }
+    }
+
+    /**
+     * Returns a new array with all light values set to the given level.
+     */
+    public static byte[] create(final int value) {
+        return TEMPLATES[value].clone();
+    }
+}
@@ -19,7 +19,7 @@ import java.util.concurrent.locks.StampedLock;
  * Null is used to indicate a value to be removed, and as such, cannot be used as a value type in the collection. If
  * you need to remove an element, use {@link DoubleBufferedLong2IntHashMap#removeSync(long)}.
  */
-public class DoubleBufferedLong2ObjectHashMap<V> {
+public class DoubleBufferedLong2ObjectHashMap<V> implements DoubleBufferedLong2ObjectMap<V> {
     // The map of pending entry updates to be applied to the visible hash table
     private final Long2ObjectMap<V> mapPending;
 
@@ -44,10 +44,12 @@ public class DoubleBufferedLong2ObjectHashMap<V> {
         this.mapPending = new Long2ObjectOpenHashMap<>(capacity, loadFactor);
     }
 
+    @Override
     public V getSync(long k) {
         return this.mapLocal.get(k);
     }
 
+    @Override
     public V putSync(long k, V value) {
         if (value == null) {
             throw new IllegalArgumentException("Value must not be null, use enqueueRemoveSync instead to remove entries");
@@ -58,16 +60,19 @@ public class DoubleBufferedLong2ObjectHashMap<V> {
         return this.mapLocal.put(k, value);
     }
 
+    @Override
     public V removeSync(long k) {
         this.mapPending.put(k, null);
 
         return this.mapLocal.remove(k);
     }
 
+    @Override
     public boolean containsSync(long k) {
         return this.mapLocal.containsKey(k);
     }
 
+    @Override
     public V getAsync(long k) {
         long stamp;
         V ret = null;
@@ -83,6 +88,7 @@ public class DoubleBufferedLong2ObjectHashMap<V> {
         return ret;
     }
 
+    @Override
     public void flushChangesSync() {
         // Early-exit if there's no work to do
         if (this.mapPending.isEmpty()) {
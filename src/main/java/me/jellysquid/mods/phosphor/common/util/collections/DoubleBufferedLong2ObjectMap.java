@@ -0,0 +1,22 @@
+package me.jellysquid.mods.phosphor.common.util.collections;
+
+/**
+ * A double buffered Long->Object map which allows for multiple readers to see a consistent view without contention
+ * over shared resources. Methods labeled as synchronous access the mutable view owned by the writer thread, which is
+ * made visible to asynchronous readers by {@link #flushChangesSync()}.
+ *
+ * Null is used to indicate a value to be removed, and as such, cannot be used as a value type in the collection.
+ */
+public interface DoubleBufferedLong2ObjectMap<V> {
+    V getSync(long k);
+
+    V putSync(long k, V value);
+
+    V removeSync(long k);
+
+    boolean containsSync(long k);
+
+    V getAsync(long k);
+
+    void flushChangesSync();
+}
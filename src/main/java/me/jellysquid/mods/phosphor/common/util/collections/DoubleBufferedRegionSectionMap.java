@@ -0,0 +1,269 @@
+package me.jellysquid.mods.phosphor.common.util.collections;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.util.math.ChunkSectionPos;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A double buffered map keyed by chunk section positions, which replaces the per-section hash table of
+ * {@link DoubleBufferedLong2ObjectHashMap} with a dense index. The world is tiled into regions of 32x32 chunk columns,
+ * and each region holds one slot for each of the 18 sections of its columns, which covers the sections from directly
+ * below to directly above the world. A lookup is then a single hash lookup for the region followed by array indexing.
+ *
+ * Light propagation mostly accesses neighbouring sections, which almost always lie within the same region. The owning
+ * thread therefore remembers the last region it accessed, so that most synchronous lookups skip hashing entirely.
+ *
+ * Like {@link DoubleBufferedLong2ObjectHashMap}, changes are recorded as pending and applied to the back-buffer after the
+ * buffers have been swapped by {@link #flushChangesSync()}. Regions are released once they contain no entries anymore.
+ */
+public class DoubleBufferedRegionSectionMap<V> implements DoubleBufferedLong2ObjectMap<V> {
+    private static final int REGION_SHIFT = 5;
+    private static final int REGION_MASK = (1 << REGION_SHIFT) - 1;
+
+    private static final int MIN_SECTION_Y = -1;
+    private static final int SECTIONS_PER_COLUMN = 18;
+
+    private static final int SLOTS_PER_REGION = (1 << (REGION_SHIFT * 2)) * SECTIONS_PER_COLUMN;
+
+    private static final long NO_REGION = Long.MAX_VALUE;
+
+    // The map of pending entry updates to be applied to the visible regions
+    private final Long2ObjectMap<V> mapPending = new Long2ObjectOpenHashMap<>();
+
+    // The regions of entries belonging to the owning thread
+    private Long2ObjectOpenHashMap<Region> regionsLocal = new Long2ObjectOpenHashMap<>();
+
+    // The regions of entries available to other threads
+    private Long2ObjectOpenHashMap<Region> regionsShared = new Long2ObjectOpenHashMap<>();
+
+    // The last region of the owned view accessed by the owning thread
+    private long cachedRegionKey = NO_REGION;
+    private Region cachedRegion;
+
+    // See DoubleBufferedLong2ObjectHashMap#lock
+    private final StampedLock lock = new StampedLock();
+
+    @Override
+    public V getSync(long k) {
+        if (!isInRange(k)) {
+            return null;
+        }
+
+        Region region = this.getLocalRegion(getRegionKey(k));
+
+        return region == null ? null : region.get(getSlot(k));
+    }
+
+    @Override
+    public V putSync(long k, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value must not be null, use removeSync instead to remove entries");
+        }
+
+        if (!isInRange(k)) {
+            throw new IllegalArgumentException("Section position is outside of the world height: " + ChunkSectionPos.unpackY(k));
+        }
+
+        this.mapPending.put(k, value);
+
+        return this.putLocal(k, value);
+    }
+
+    @Override
+    public V removeSync(long k) {
+        if (!isInRange(k)) {
+            return null;
+        }
+
+        this.mapPending.put(k, null);
+
+        return this.removeLocal(k);
+    }
+
+    @Override
+    public boolean containsSync(long k) {
+        return this.getSync(k) != null;
+    }
+
+    @Override
+    public V getAsync(long k) {
+        if (!isInRange(k)) {
+            return null;
+        }
+
+        long regionKey = getRegionKey(k);
+        int slot = getSlot(k);
+
+        long stamp;
+        V ret = null;
+
+        do {
+            stamp = this.lock.tryOptimisticRead();
+
+            try {
+                Region region = this.regionsShared.get(regionKey);
+                ret = region == null ? null : region.get(slot);
+            } catch (ArrayIndexOutOfBoundsException ignored) { } // Swallow memory errors on failed optimistic reads
+        } while (!this.lock.validate(stamp));
+
+        return ret;
+    }
+
+    @Override
+    public void flushChangesSync() {
+        // Early-exit if there's no work to do
+        if (this.mapPending.isEmpty()) {
+            return;
+        }
+
+        // Swap the local and shared regions immediately, and then block the writer thread while we finish copying
+        this.swapTables();
+
+        for (Long2ObjectMap.Entry<V> entry : Long2ObjectMaps.fastIterable(this.mapPending)) {
+            final long key = entry.getLongKey();
+            final V val = entry.getValue();
+
+            if (val == null) {
+                this.removeLocal(key);
+            } else {
+                this.putLocal(key, val);
+            }
+        }
+
+        this.mapPending.clear();
+    }
+
+    /**
+     * Returns the number of regions in the owned view.
+     */
+    public int getRegionCount() {
+        return this.regionsLocal.size();
+    }
+
+    private void swapTables() {
+        final long writeLock = this.lock.writeLock();
+
+        Long2ObjectOpenHashMap<Region> regionsShared = this.regionsLocal;
+        Long2ObjectOpenHashMap<Region> regionsLocal = this.regionsShared;
+
+        this.regionsShared = regionsShared;
+        this.regionsLocal = regionsLocal;
+
+        this.lock.unlockWrite(writeLock);
+
+        this.cachedRegionKey = NO_REGION;
+        this.cachedRegion = null;
+    }
+
+    private V putLocal(long k, V value) {
+        long regionKey = getRegionKey(k);
+        Region region = this.getLocalRegion(regionKey);
+
+        if (region == null) {
+            region = new Region();
+
+            this.regionsLocal.put(regionKey, region);
+            this.cacheRegion(regionKey, region);
+        }
+
+        return region.put(getSlot(k), value);
+    }
+
+    private V removeLocal(long k) {
+        long regionKey = getRegionKey(k);
+        Region region = this.getLocalRegion(regionKey);
+
+        if (region == null) {
+            return null;
+        }
+
+        V prev = region.remove(getSlot(k));
+
+        if (region.count == 0) {
+            this.regionsLocal.remove(regionKey);
+
+            if (this.cachedRegionKey == regionKey) {
+                this.cachedRegionKey = NO_REGION;
+                this.cachedRegion = null;
+            }
+        }
+
+        return prev;
+    }
+
+    private Region getLocalRegion(long regionKey) {
+        if (this.cachedRegionKey == regionKey) {
+            return this.cachedRegion;
+        }
+
+        Region region = this.regionsLocal.get(regionKey);
+
+        if (region != null) {
+            this.cacheRegion(regionKey, region);
+        }
+
+        return region;
+    }
+
+    private void cacheRegion(long regionKey, Region region) {
+        this.cachedRegionKey = regionKey;
+        this.cachedRegion = region;
+    }
+
+    private static boolean isInRange(long sectionPos) {
+        int y = ChunkSectionPos.unpackY(sectionPos);
+
+        return y >= MIN_SECTION_Y && y < MIN_SECTION_Y + SECTIONS_PER_COLUMN;
+    }
+
+    private static long getRegionKey(long sectionPos) {
+        int regionX = ChunkSectionPos.unpackX(sectionPos) >> REGION_SHIFT;
+        int regionZ = ChunkSectionPos.unpackZ(sectionPos) >> REGION_SHIFT;
+
+        return ((long) regionX << 32) | (regionZ & 0xFFFFFFFFL);
+    }
+
+    // Sections of a column are adjacent, followed by the columns along the z-axis
+    private static int getSlot(long sectionPos) {
+        int x = ChunkSectionPos.unpackX(sectionPos) & REGION_MASK;
+        int z = ChunkSectionPos.unpackZ(sectionPos) & REGION_MASK;
+
+        return (((x << REGION_SHIFT) | z) * SECTIONS_PER_COLUMN) + (ChunkSectionPos.unpackY(sectionPos) - MIN_SECTION_Y);
+    }
+
+    private class Region {
+        private final Object[] slots = new Object[SLOTS_PER_REGION];
+        private int count;
+
+        @SuppressWarnings("unchecked")
+        private V get(int slot) {
+            return (V) this.slots[slot];
+        }
+
+        private V put(int slot, V value) {
+            V prev = this.get(slot);
+
+            if (prev == null) {
+                this.count++;
+            }
+
+            this.slots[slot] = value;
+
+            return prev;
+        }
+
+        private V remove(int slot) {
+            V prev = this.get(slot);
+
+            if (prev != null) {
+                this.count--;
+                this.slots[slot] = null;
+            }
+
+            return prev;
+        }
+    }
+}
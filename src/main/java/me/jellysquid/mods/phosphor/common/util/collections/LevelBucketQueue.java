@@ -0,0 +1,108 @@
+package me.jellysquid.mods.phosphor.common.util.collections;
+
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+
+/**
+ * A bucket queue of pending light updates with one FIFO queue per level, which replaces the linked hash sets used by
+ * {@link net.minecraft.world.chunk.light.LevelPropagator} for the light engines.
+ *
+ * Each bucket is a ring buffer of primitive longs, so scheduling an update is a plain array store. Removals are lazy:
+ * instead of searching the position in its bucket, only the level it is scheduled in is reset in the
+ * {@link SectionedPendingUpdateMap}, and entries whose position is no longer scheduled in their bucket's level are
+ * skipped when they reach the head of the bucket. The number of live entries is tracked per level, and a bucket is
+ * emptied completely as soon as it holds no live entries anymore, so stale entries cannot pile up.
+ *
+ * The processing order within a level differs slightly from vanilla. Like {@link it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet#add(long)},
+ * adding a position to the level it is already scheduled in keeps its slot. However, a position which is removed and
+ * added to the same level again, before its stale entry has reached the head of the bucket, takes over that earlier
+ * slot instead of moving to the end of the level as in vanilla. This only changes the order in which updates of the
+ * same level are processed, which does not affect the resulting light levels.
+ */
+public class LevelBucketQueue {
+    private final SectionedPendingUpdateMap pendingUpdates;
+
+    private final LongArrayFIFOQueue[] buckets;
+    private final int[] sizes;
+
+    public LevelBucketQueue(SectionedPendingUpdateMap pendingUpdates, int levelCount) {
+        this.pendingUpdates = pendingUpdates;
+        this.buckets = new LongArrayFIFOQueue[levelCount];
+        this.sizes = new int[levelCount];
+
+        for (int i = 0; i < levelCount; i++) {
+            this.buckets[i] = new LongArrayFIFOQueue();
+        }
+    }
+
+    /**
+     * Schedules the position in the given level. The position must already be contained in the pending update map.
+     * If the position is already scheduled in another level, it is moved, which may leave that level empty.
+     *
+     * @return The level the position was scheduled in before, or {@link SectionedPendingUpdateMap#NOT_QUEUED}
+     */
+    public int add(long pos, int level) {
+        int prevLevel = this.pendingUpdates.getQueuedLevel(pos);
+
+        if (prevLevel == level) {
+            return prevLevel;
+        }
+
+        this.pendingUpdates.setQueuedLevel(pos, level);
+        this.buckets[level].enqueue(pos);
+        this.sizes[level]++;
+
+        if (prevLevel != SectionedPendingUpdateMap.NOT_QUEUED) {
+            this.markRemoved(prevLevel);
+        }
+
+        return prevLevel;
+    }
+
+    /**
+     * Unschedules the position from whichever level it is scheduled in. This must be called before the position is
+     * removed from the pending update map.
+     *
+     * @return The level the position was scheduled in, or {@link SectionedPendingUpdateMap#NOT_QUEUED}
+     */
+    public int remove(long pos) {
+        int level = this.pendingUpdates.getQueuedLevel(pos);
+
+        if (level != SectionedPendingUpdateMap.NOT_QUEUED) {
+            this.pendingUpdates.setQueuedLevel(pos, SectionedPendingUpdateMap.NOT_QUEUED);
+            this.markRemoved(level);
+        }
+
+        return level;
+    }
+
+    /**
+     * Removes and returns the oldest position scheduled in the given level, skipping over stale entries. The level
+     * must not be empty.
+     */
+    public long removeFirst(int level) {
+        LongArrayFIFOQueue bucket = this.buckets[level];
+
+        while (true) {
+            long pos = bucket.dequeueLong();
+
+            if (this.pendingUpdates.getQueuedLevel(pos) == level) {
+                this.pendingUpdates.setQueuedLevel(pos, SectionedPendingUpdateMap.NOT_QUEUED);
+                this.markRemoved(level);
+
+                return pos;
+            }
+        }
+    }
+
+    public boolean isEmpty(int level) {
+        return this.sizes[level] == 0;
+    }
+
+    // Called for every position which is no longer scheduled in the given level
+    void markRemoved(int level) {
+        if (--this.sizes[level] == 0) {
+            // Drop all stale entries at once
+            this.buckets[level].clear();
+        }
+    }
+}
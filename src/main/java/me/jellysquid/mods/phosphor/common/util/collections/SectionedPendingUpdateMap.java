@@ -0,0 +1,425 @@
+package me.jellysquid.mods.phosphor.common.util.collections;
+
+import it.unimi.dsi.fastutil.longs.AbstractLong2ByteMap;
+import it.unimi.dsi.fastutil.longs.Long2ByteMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.AbstractObjectSet;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import it.unimi.dsi.fastutil.objects.ObjectSet;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+
+/**
+ * A map of pending light updates keyed by block position, which replaces the hash map used by
+ * {@link net.minecraft.world.chunk.light.LevelPropagator} for the light engines.
+ *
+ * Light updates are heavily clustered, so instead of hashing every block position, this map only hashes the chunk
+ * section a position belongs to. Each section with pending updates owns a dense array holding the pending level of
+ * each of its 4096 positions, and a bit-field of the positions which are occupied. Consecutive accesses mostly hit the
+ * same section, so the last section used is cached and the hash lookup is skipped entirely for them. The bit-field also
+ * allows all updates within a section to be found without scanning the whole array or every queued update.
+ *
+ * Alongside the pending level, each position stores the level of the queue it is currently scheduled in, which is used
+ * by {@link LevelBucketQueue} to tell live queue entries from stale ones.
+ *
+ * Sections are returned to a small pool once their last pending update is removed, as they are already fully reset at
+ * that point. Light updates constantly move between sections, so this keeps the bookkeeping free of allocations in the
+ * steady state, instead of churning through 8 KB of arrays whenever updates enter a new section.
+ */
+public class SectionedPendingUpdateMap extends AbstractLong2ByteMap {
+    // Used to mask a long-encoded block position into a section key by dropping the first 4 bits of each component
+    private static final long BLOCK_TO_SECTION_KEY_MASK = ~BlockPos.asLong(15, 15, 15);
+
+    private static final long NO_SECTION = Long.MAX_VALUE;
+
+    public static final int NOT_QUEUED = 0xFF;
+
+    private static final int MAX_POOLED_SECTIONS = 64;
+
+    private final Long2ObjectOpenHashMap<Section> sections = new Long2ObjectOpenHashMap<>();
+
+    private long cachedSectionKey = NO_SECTION;
+    private Section cachedSection;
+
+    private final Section[] pool = new Section[MAX_POOLED_SECTIONS];
+    private int pooledCount;
+
+    private int size;
+
+    @Override
+    public byte get(long pos) {
+        Section section = this.getSection(pos & BLOCK_TO_SECTION_KEY_MASK);
+
+        if (section == null) {
+            return this.defRetValue;
+        }
+
+        return section.levels[getLocalIndex(pos)];
+    }
+
+    @Override
+    public boolean containsKey(long pos) {
+        Section section = this.getSection(pos & BLOCK_TO_SECTION_KEY_MASK);
+
+        return section != null && section.isOccupied(getLocalIndex(pos));
+    }
+
+    @Override
+    public byte put(long pos, byte value) {
+        long key = pos & BLOCK_TO_SECTION_KEY_MASK;
+        Section section = this.getSection(key);
+
+        if (section == null) {
+            section = this.allocateSection(key);
+
+            this.sections.put(key, section);
+            this.cacheSection(key, section);
+        }
+
+        int index = getLocalIndex(pos);
+        byte prev = section.levels[index];
+
+        if (!section.isOccupied(index)) {
+            section.setOccupied(index);
+            this.size++;
+
+            prev = this.defRetValue;
+        }
+
+        section.levels[index] = value;
+
+        return prev;
+    }
+
+    @Override
+    public byte remove(long pos) {
+        long key = pos & BLOCK_TO_SECTION_KEY_MASK;
+        Section section = this.getSection(key);
+
+        if (section == null) {
+            return this.defRetValue;
+        }
+
+        int index = getLocalIndex(pos);
+
+        if (!section.isOccupied(index)) {
+            return this.defRetValue;
+        }
+
+        byte prev = section.levels[index];
+
+        section.clearOccupied(index);
+        section.levels[index] = this.defRetValue;
+        section.queuedLevels[index] = (byte) NOT_QUEUED;
+
+        this.size--;
+
+        if (section.count == 0) {
+            this.removeSection(key, section);
+        }
+
+        return prev;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public void clear() {
+        this.sections.clear();
+        this.cachedSectionKey = NO_SECTION;
+        this.cachedSection = null;
+        this.size = 0;
+    }
+
+    /**
+     * Returns the level of the queue the given position is scheduled in, or {@link #NOT_QUEUED} if it is not scheduled
+     * in any queue or not contained in this map.
+     */
+    public int getQueuedLevel(long pos) {
+        Section section = this.getSection(pos & BLOCK_TO_SECTION_KEY_MASK);
+
+        if (section == null) {
+            return NOT_QUEUED;
+        }
+
+        return section.queuedLevels[getLocalIndex(pos)] & 0xFF;
+    }
+
+    /**
+     * Sets the level of the queue the given position is scheduled in. The position must be contained in this map.
+     */
+    public void setQueuedLevel(long pos, int level) {
+        Section section = this.getSection(pos & BLOCK_TO_SECTION_KEY_MASK);
+
+        if (section == null) {
+            throw new IllegalStateException("Position is not contained in the map");
+        }
+
+        section.queuedLevels[getLocalIndex(pos)] = (byte) level;
+    }
+
+    /**
+     * Returns the number of chunk sections which currently hold pending updates.
+     */
+    public int getSectionCount() {
+        return this.sections.size();
+    }
+
+    /**
+     * Returns the number of unused sections which are kept for reuse.
+     */
+    public int getPooledSectionCount() {
+        return this.pooledCount;
+    }
+
+    /**
+     * Removes all pending updates within the given chunk column in a single pass and unschedules them from the queue.
+     * Instead of removing each position individually, the sections of the column are reset and released as a whole.
+     *
+     * @return The number of pending updates which have been removed
+     */
+    public int removeColumn(int chunkX, int chunkZ, LevelBucketQueue queue) {
+        int removed = 0;
+
+        // Light updates can be queued for the sections directly below and above the world
+        for (int y = -1; y < 17; y++) {
+            long key = BlockPos.asLong(chunkX << 4, y << 4, chunkZ << 4);
+            Section section = this.getSection(key);
+
+            if (section != null) {
+                removed += section.clear(queue, this.defRetValue);
+
+                this.removeSection(key, section);
+            }
+        }
+
+        this.size -= removed;
+
+        return removed;
+    }
+
+    /**
+     * Passes the block position of every pending update within the given chunk section to the consumer. The consumer
+     * may remove the position it was passed from this map, but must not make any other modifications.
+     */
+    public void forEachInSection(long sectionPos, LongConsumer consumer) {
+        long key = BlockPos.asLong(ChunkSectionPos.unpackX(sectionPos) << 4, ChunkSectionPos.unpackY(sectionPos) << 4,
+                ChunkSectionPos.unpackZ(sectionPos) << 4);
+
+        Section section = this.getSection(key);
+
+        if (section != null) {
+            section.forEach(consumer);
+        }
+    }
+
+    private Section getSection(long key) {
+        if (this.cachedSectionKey == key) {
+            return this.cachedSection;
+        }
+
+        Section section = this.sections.get(key);
+
+        if (section != null) {
+            this.cacheSection(key, section);
+        }
+
+        return section;
+    }
+
+    private void cacheSection(long key, Section section) {
+        this.cachedSectionKey = key;
+        this.cachedSection = section;
+    }
+
+    private Section allocateSection(long key) {
+        if (this.pooledCount > 0) {
+            Section section = this.pool[--this.pooledCount];
+            this.pool[this.pooledCount] = null;
+
+            section.setOrigin(key);
+
+            return section;
+        }
+
+        return new Section(key, this.defRetValue);
+    }
+
+    // The section must not hold any pending updates anymore, as it is reused as-is
+    private void removeSection(long key, Section section) {
+        this.sections.remove(key);
+
+        if (this.cachedSectionKey == key) {
+            this.cachedSectionKey = NO_SECTION;
+            this.cachedSection = null;
+        }
+
+        if (this.pooledCount < this.pool.length) {
+            this.pool[this.pooledCount++] = section;
+        }
+    }
+
+    // Finds the index of a local position within a chunk section
+    private static int getLocalIndex(long pos) {
+        int x = BlockPos.unpackLongX(pos) & 15;
+        int y = BlockPos.unpackLongY(pos) & 15;
+        int z = BlockPos.unpackLongZ(pos) & 15;
+
+        return (x << 8) | (y << 4) | z;
+    }
+
+    @Override
+    public ObjectSet<Long2ByteMap.Entry> long2ByteEntrySet() {
+        return new AbstractObjectSet<Long2ByteMap.Entry>() {
+            @Override
+            public ObjectIterator<Long2ByteMap.Entry> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return SectionedPendingUpdateMap.this.size;
+            }
+        };
+    }
+
+    private static class Section {
+        private int originX, originY, originZ;
+
+        private final byte[] levels = new byte[16 * 16 * 16];
+        private final byte[] queuedLevels = new byte[16 * 16 * 16];
+        private final long[] occupied = new long[(16 * 16 * 16) / 64];
+
+        private int count;
+
+        private Section(long key, byte defaultValue) {
+            this.setOrigin(key);
+
+            Arrays.fill(this.levels, defaultValue);
+            Arrays.fill(this.queuedLevels, (byte) NOT_QUEUED);
+        }
+
+        private void setOrigin(long key) {
+            this.originX = BlockPos.unpackLongX(key);
+            this.originY = BlockPos.unpackLongY(key);
+            this.originZ = BlockPos.unpackLongZ(key);
+        }
+
+        private boolean isOccupied(int index) {
+            return (this.occupied[index >>> 6] & (1L << index)) != 0;
+        }
+
+        private void setOccupied(int index) {
+            this.occupied[index >>> 6] |= 1L << index;
+            this.count++;
+        }
+
+        private void clearOccupied(int index) {
+            this.occupied[index >>> 6] &= ~(1L << index);
+            this.count--;
+        }
+
+        private long getBlockPos(int index) {
+            return BlockPos.asLong(this.originX + (index >> 8), this.originY + ((index >> 4) & 15), this.originZ + (index & 15));
+        }
+
+        // Resets all positions to their initial state and returns the number of pending updates removed
+        private int clear(LevelBucketQueue queue, byte defaultValue) {
+            int removed = this.count;
+
+            for (int i = 0; i < this.occupied.length; i++) {
+                long word = this.occupied[i];
+
+                while (word != 0) {
+                    int index = (i << 6) | Long.numberOfTrailingZeros(word);
+                    int queuedLevel = this.queuedLevels[index] & 0xFF;
+
+                    if (queuedLevel != NOT_QUEUED) {
+                        queue.markRemoved(queuedLevel);
+                        this.queuedLevels[index] = (byte) NOT_QUEUED;
+                    }
+
+                    this.levels[index] = defaultValue;
+
+                    word &= word - 1;
+                }
+
+                this.occupied[i] = 0L;
+            }
+
+            this.count = 0;
+
+            return removed;
+        }
+
+        private void forEach(LongConsumer consumer) {
+            for (int i = 0; i < this.occupied.length; i++) {
+                // Iterate over a copy of the word, as the consumer is allowed to clear the bit it was passed
+                long word = this.occupied[i];
+
+                while (word != 0) {
+                    consumer.accept(this.getBlockPos((i << 6) | Long.numberOfTrailingZeros(word)));
+
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    private class EntryIterator implements ObjectIterator<Long2ByteMap.Entry> {
+        private final ObjectIterator<Section> sections = SectionedPendingUpdateMap.this.sections.values().iterator();
+
+        private Section section;
+        private int index = -1;
+
+        private EntryIterator() {
+            this.advance();
+        }
+
+        private void advance() {
+            while (true) {
+                if (this.section != null) {
+                    for (this.index++; this.index < 16 * 16 * 16; this.index++) {
+                        if (this.section.isOccupied(this.index)) {
+                            return;
+                        }
+                    }
+                }
+
+                if (!this.sections.hasNext()) {
+                    this.section = null;
+
+                    return;
+                }
+
+                this.section = this.sections.next();
+                this.index = -1;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.section != null;
+        }
+
+        @Override
+        public Long2ByteMap.Entry next() {
+            if (this.section == null) {
+                throw new NoSuchElementException();
+            }
+
+            Long2ByteMap.Entry entry = new BasicEntry(this.section.getBlockPos(this.index), this.section.levels[this.index]);
+
+            this.advance();
+
+            return entry;
+        }
+    }
+}
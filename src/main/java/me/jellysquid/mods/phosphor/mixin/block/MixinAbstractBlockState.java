@@ -2,18 +2,39 @@ package me.jellysquid.mods.phosphor.mixin.block;
 
 import me.jellysquid.mods.phosphor.common.block.BlockStateLightInfoAccess;
 import me.jellysquid.mods.phosphor.common.block.BlockStateLightInfo;
+import me.jellysquid.mods.phosphor.common.block.BlockStateLightProperties;
 import net.minecraft.block.AbstractBlock;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 @Mixin(AbstractBlock.AbstractBlockState.class)
 public abstract class MixinAbstractBlockState implements BlockStateLightInfoAccess {
     @Shadow
     protected AbstractBlock.AbstractBlockState.ShapeCache shapeCache;
 
+    @Shadow
+    public abstract boolean hasSidedTransparency();
+
+    @Unique
+    private int lightProperties;
+
     @SuppressWarnings("ConstantConditions")
     @Override
     public BlockStateLightInfo getLightInfo() {
         return (BlockStateLightInfo) (Object) this.shapeCache;
     }
+
+    @Override
+    public int getLightProperties() {
+        return this.lightProperties;
+    }
+
+    @Inject(method = "initShapeCache", at = @At("RETURN"))
+    private void initLightProperties(final CallbackInfo ci) {
+        this.lightProperties = BlockStateLightProperties.pack(this.getLightInfo(), this.hasSidedTransparency());
+    }
 }
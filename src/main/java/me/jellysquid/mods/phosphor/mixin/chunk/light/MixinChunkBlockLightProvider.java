@@ -3,6 +3,7 @@ package me.jellysquid.mods.phosphor.mixin.chunk.light;
 import me.jellysquid.mods.phosphor.common.chunk.level.LevelPropagatorExtended;
 import me.jellysquid.mods.phosphor.common.chunk.light.BlockLightStorageAccess;
 import me.jellysquid.mods.phosphor.common.chunk.light.LightProviderBlockAccess;
+import me.jellysquid.mods.phosphor.common.metrics.LightEngineMetricsAccess;
 import me.jellysquid.mods.phosphor.common.util.LightUtil;
 import me.jellysquid.mods.phosphor.common.util.math.DirectionHelper;
 import net.minecraft.block.BlockState;
@@ -118,6 +119,8 @@ public abstract class MixinChunkBlockLightProvider extends ChunkLightProvider<Bl
     @Override
     @Overwrite
     public void propagateLevel(long id, int targetLevel, boolean mergeAsMin) {
+        ((LightEngineMetricsAccess) this).getMetrics().countPropagation(id);
+
         int x = BlockPos.unpackLongX(id);
         int y = BlockPos.unpackLongY(id);
         int z = BlockPos.unpackLongZ(id);
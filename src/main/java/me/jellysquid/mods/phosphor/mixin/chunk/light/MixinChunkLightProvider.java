@@ -1,14 +1,20 @@
 package me.jellysquid.mods.phosphor.mixin.chunk.light;
 
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
-import me.jellysquid.mods.phosphor.common.block.BlockStateLightInfo;
 import me.jellysquid.mods.phosphor.common.block.BlockStateLightInfoAccess;
-import me.jellysquid.mods.phosphor.common.chunk.level.LevelUpdateListener;
+import me.jellysquid.mods.phosphor.common.block.BlockStateLightProperties;
 import me.jellysquid.mods.phosphor.common.chunk.light.InitialLightingAccess;
+import me.jellysquid.mods.phosphor.common.chunk.light.LevelPropagatorAccess;
 import me.jellysquid.mods.phosphor.common.chunk.light.LightInitializer;
 import me.jellysquid.mods.phosphor.common.chunk.light.LightProviderBlockAccess;
 import me.jellysquid.mods.phosphor.common.chunk.light.LightProviderUpdateTracker;
 import me.jellysquid.mods.phosphor.common.chunk.light.LightStorageAccess;
+import me.jellysquid.mods.phosphor.common.jfr.LightEvents;
+import me.jellysquid.mods.phosphor.common.metrics.LightEngineMetrics;
+import me.jellysquid.mods.phosphor.common.metrics.LightEngineMetricsAccess;
+import me.jellysquid.mods.phosphor.common.metrics.LightEngineMetricsRegistry;
+import me.jellysquid.mods.phosphor.common.util.WorldUtil;
+import me.jellysquid.mods.phosphor.common.util.collections.LevelBucketQueue;
+import me.jellysquid.mods.phosphor.common.util.collections.SectionedPendingUpdateMap;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.util.math.BlockPos;
@@ -17,6 +23,7 @@ import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.util.shape.VoxelShape;
 import net.minecraft.util.shape.VoxelShapes;
+import net.minecraft.world.LightType;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.ChunkProvider;
@@ -29,19 +36,24 @@ import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Overwrite;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import java.util.Arrays;
-import java.util.BitSet;
 
 @Mixin(ChunkLightProvider.class)
 public abstract class MixinChunkLightProvider<M extends ChunkToNibbleArrayMap<M>, S extends LightStorage<M>>
-        extends LevelPropagator implements LightProviderUpdateTracker, LightProviderBlockAccess, LightInitializer, LevelUpdateListener, InitialLightingAccess {
+        extends LevelPropagator implements LightProviderUpdateTracker, LightProviderBlockAccess, LightInitializer, InitialLightingAccess,
+        LightEngineMetricsAccess, LightEngineMetrics.Gauges {
     private static final BlockState DEFAULT_STATE = Blocks.AIR.getDefaultState();
     private static final ChunkSection[] EMPTY_SECTION_ARRAY = new ChunkSection[16];
 
+    // [VanillaCopy] ChunkLightProvider#<init>
+    private static final int LIGHT_LEVEL_COUNT = 16;
+
     @Shadow
     @Final
     protected BlockPos.Mutable reusableBlockPos;
@@ -50,24 +62,94 @@ public abstract class MixinChunkLightProvider<M extends ChunkToNibbleArrayMap<M>
     @Final
     protected ChunkProvider chunkProvider;
 
-    private final long[] cachedChunkPos = new long[2];
-    private final ChunkSection[][] cachedChunkSections = new ChunkSection[2][];
+    // The chunk sections of the 3x3 chunk columns around the anchor column, indexed by their offset to the anchor. Light
+    // mostly spreads between neighbouring columns, so the anchor only moves once a column outside of them is accessed.
+    // Columns are looked up once they are first accessed, null marks columns which have not been looked up yet
+    @Unique
+    private final ChunkSection[][] neighbourhoodSections = new ChunkSection[9][];
+    @Unique
+    private final ChunkSection[][] previousNeighbourhoodSections = new ChunkSection[9][];
+    @Unique
+    private int anchorChunkX;
+    @Unique
+    private int anchorChunkZ;
+
+    @Unique
+    private final SectionedPendingUpdateMap sectionedPendingUpdates = new SectionedPendingUpdateMap();
+
+    @Unique
+    private final LevelBucketQueue bucketQueue = new LevelBucketQueue(this.sectionedPendingUpdates, LIGHT_LEVEL_COUNT);
 
-    private final Long2ObjectOpenHashMap<BitSet> buckets = new Long2ObjectOpenHashMap<>();
+    @Unique
+    private LightEngineMetrics metrics;
 
-    private long prevChunkBucketKey = ChunkPos.MARKER;
-    private BitSet prevChunkBucketSet;
+    @Unique
+    private Object lightUpdatesEvent;
 
     protected MixinChunkLightProvider(int levelCount, int expectedLevelSize, int expectedTotalSize) {
         super(levelCount, expectedLevelSize, expectedTotalSize);
     }
 
+    @Inject(method = "<init>", at = @At("RETURN"))
+    private void onInit(final ChunkProvider chunkProvider, final LightType type, final LightStorage<?> lightStorage, final CallbackInfo ci) {
+        ((LevelPropagatorAccess) this).setPendingUpdateMap(this.sectionedPendingUpdates);
+        ((LevelPropagatorAccess) this).setPendingUpdateQueue(this.bucketQueue);
+
+        this.metrics = new LightEngineMetrics(WorldUtil.getWorldName(chunkProvider), type, this);
+        ((LightStorageAccess) lightStorage).setMetrics(this.metrics);
+
+        LightEngineMetricsRegistry.register(this.metrics);
+    }
+
+    @Inject(method = "doLightUpdates", at = @At("HEAD"))
+    private void onBeginLightUpdates(final int maxSteps, final boolean doSkylight, final boolean skipEdgeLightPropagation, final CallbackInfoReturnable<Integer> cir) {
+        this.metrics.tick();
+        this.lightUpdatesEvent = LightEvents.beginLightUpdates(this.metrics);
+    }
+
+    @Inject(method = "doLightUpdates", at = @At("RETURN"))
+    private void onEndLightUpdates(final int maxSteps, final boolean doSkylight, final boolean skipEdgeLightPropagation, final CallbackInfoReturnable<Integer> cir) {
+        LightEvents.commitLightUpdates(this.lightUpdatesEvent, this.metrics, cir.getReturnValueI());
+        this.lightUpdatesEvent = null;
+    }
+
+    @Override
+    public LightEngineMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    // countPendingUpdates() is provided by MixinLevelPropagator
+
+    @Override
+    public int countPendingUpdateBuckets() {
+        return this.sectionedPendingUpdates.getSectionCount();
+    }
+
+    @Override
+    public int countPooledPendingUpdateBuckets() {
+        return this.sectionedPendingUpdates.getPooledSectionCount();
+    }
+
+    @Override
+    public int countReadonlyLightmaps() {
+        return ((LightStorageAccess) this.lightStorage).countReadonlyLightmaps();
+    }
+
+    @Override
+    public long countLightmapCacheHits() {
+        return ((LightStorageAccess) this.lightStorage).countLightmapCacheHits();
+    }
+
+    @Override
+    public long countLightmapCacheMisses() {
+        return ((LightStorageAccess) this.lightStorage).countLightmapCacheMisses();
+    }
+
     @Inject(method = "clearChunkCache", at = @At("RETURN"))
     private void onCleanup(CallbackInfo ci) {
         // This callback may be executed from the constructor above, and the object won't be initialized then
-        if (this.cachedChunkPos != null) {
-            Arrays.fill(this.cachedChunkPos, ChunkPos.MARKER);
-            Arrays.fill(this.cachedChunkSections, null);
+        if (this.neighbourhoodSections != null) {
+            Arrays.fill(this.neighbourhoodSections, null);
         }
     }
 
@@ -78,19 +160,28 @@ public abstract class MixinChunkLightProvider<M extends ChunkToNibbleArrayMap<M>
             return DEFAULT_STATE;
         }
 
-        final long chunkPos = ChunkPos.toLong(x >> 4, z >> 4);
+        final int chunkX = x >> 4;
+        final int chunkZ = z >> 4;
 
-        for (int i = 0; i < 2; i++) {
-            if (this.cachedChunkPos[i] == chunkPos) {
-                return this.getBlockStateFromSection(this.cachedChunkSections[i], x, y, z);
-            }
+        int dx = chunkX - this.anchorChunkX + 1;
+        int dz = chunkZ - this.anchorChunkZ + 1;
+
+        if (dx < 0 || dx > 2 || dz < 0 || dz > 2) {
+            this.moveAnchor(chunkX, chunkZ);
+
+            dx = 1;
+            dz = 1;
         }
 
-        return this.getBlockStateForLightingUncached(x, y, z);
-    }
+        final int index = dx * 3 + dz;
+        ChunkSection[] sections = this.neighbourhoodSections[index];
 
-    private BlockState getBlockStateForLightingUncached(int x, int y, int z) {
-        return this.getBlockStateFromSection(this.getAndCacheChunkSections(x >> 4, z >> 4), x, y, z);
+        if (sections == null) {
+            sections = this.getChunkSections(chunkX, chunkZ);
+            this.neighbourhoodSections[index] = sections;
+        }
+
+        return this.getBlockStateFromSection(sections, x, y, z);
     }
 
     private BlockState getBlockStateFromSection(ChunkSection[] sections, int x, int y, int z) {
@@ -103,28 +194,47 @@ public abstract class MixinChunkLightProvider<M extends ChunkToNibbleArrayMap<M>
         return DEFAULT_STATE;
     }
 
-    private ChunkSection[] getAndCacheChunkSections(int x, int z) {
+    private ChunkSection[] getChunkSections(int x, int z) {
         final Chunk chunk = (Chunk) this.chunkProvider.getChunk(x, z);
-        final ChunkSection[] sections = chunk != null ? chunk.getSectionArray() : EMPTY_SECTION_ARRAY;
+        return chunk != null ? chunk.getSectionArray() : EMPTY_SECTION_ARRAY;
+    }
 
-        final ChunkSection[][] cachedSections = this.cachedChunkSections;
-        cachedSections[1] = cachedSections[0];
-        cachedSections[0] = sections;
+    // Keeps the columns which are still within the neighbourhood of the new anchor
+    private void moveAnchor(final int chunkX, final int chunkZ) {
+        final ChunkSection[][] sections = this.neighbourhoodSections;
+        final ChunkSection[][] prevSections = this.previousNeighbourhoodSections;
 
-        final long[] cachedCoords = this.cachedChunkPos;
-        cachedCoords[1] = cachedCoords[0];
-        cachedCoords[0] = ChunkPos.toLong(x, z);
+        System.arraycopy(sections, 0, prevSections, 0, sections.length);
 
-        return sections;
+        final int shiftX = chunkX - this.anchorChunkX;
+        final int shiftZ = chunkZ - this.anchorChunkZ;
+
+        for (int dx = 0; dx < 3; dx++) {
+            for (int dz = 0; dz < 3; dz++) {
+                final int prevDx = dx + shiftX;
+                final int prevDz = dz + shiftZ;
+
+                if (prevDx >= 0 && prevDx < 3 && prevDz >= 0 && prevDz < 3) {
+                    sections[dx * 3 + dz] = prevSections[prevDx * 3 + prevDz];
+                } else {
+                    sections[dx * 3 + dz] = null;
+                }
+            }
+        }
+
+        Arrays.fill(prevSections, null);
+
+        this.anchorChunkX = chunkX;
+        this.anchorChunkZ = chunkZ;
     }
 
     // [VanillaCopy] method_20479
     @Override
     public int getSubtractedLight(BlockState state, int x, int y, int z) {
-        BlockStateLightInfo info = ((BlockStateLightInfoAccess) state).getLightInfo();
+        int properties = ((BlockStateLightInfoAccess) state).getLightProperties();
 
-        if (info != null) {
-            return info.getLightSubtracted();
+        if (BlockStateLightProperties.isKnown(properties)) {
+            return BlockStateLightProperties.getLightSubtracted(properties);
         } else {
             return this.getSubtractedLightFallback(state, x, y, z);
         }
@@ -137,21 +247,28 @@ public abstract class MixinChunkLightProvider<M extends ChunkToNibbleArrayMap<M>
     // [VanillaCopy] method_20479
     @Override
     public VoxelShape getOpaqueShape(BlockState state, int x, int y, int z, Direction dir) {
-        if (state != null && state.hasSidedTransparency()) {
-            BlockStateLightInfo info = ((BlockStateLightInfoAccess) state).getLightInfo();
+        if (state == null) {
+            return VoxelShapes.empty();
+        }
 
-            if (info != null) {
-                VoxelShape[] extrudedFaces = info.getExtrudedFaces();
+        int properties = ((BlockStateLightInfoAccess) state).getLightProperties();
 
-                if (extrudedFaces != null) {
-                    return extrudedFaces[dir.ordinal()];
-                }
-            } else {
-                return this.getOpaqueShapeFallback(state, x, y, z, dir);
-            }
+        if (!BlockStateLightProperties.isKnown(properties)) {
+            return state.hasSidedTransparency() ? this.getOpaqueShapeFallback(state, x, y, z, dir) : VoxelShapes.empty();
+        }
+
+        if (!BlockStateLightProperties.hasSidedTransparency(properties)) {
+            return VoxelShapes.empty();
         }
 
-        return VoxelShapes.empty();
+        switch (BlockStateLightProperties.getFaceClass(properties, dir)) {
+            case BlockStateLightProperties.FACE_FULL:
+                return VoxelShapes.fullCube();
+            case BlockStateLightProperties.FACE_PARTIAL:
+                return ((BlockStateLightInfoAccess) state).getLightInfo().getExtrudedFaces()[dir.ordinal()];
+            default:
+                return VoxelShapes.empty();
+        }
     }
 
     private VoxelShape getOpaqueShapeFallback(BlockState state, int x, int y, int z, Direction dir) {
@@ -160,6 +277,8 @@ public abstract class MixinChunkLightProvider<M extends ChunkToNibbleArrayMap<M>
 
     @Override
     public void spreadLightInto(long a, long b) {
+        this.metrics.attributeWork(a);
+
         this.updateLevel(a, b, this.getPropagatedLevel(a, b, this.getLevel(a)), false);
         this.updateLevel(b, a, this.getPropagatedLevel(b, a, this.getLevel(b)), false);
     }
@@ -169,107 +288,24 @@ public abstract class MixinChunkLightProvider<M extends ChunkToNibbleArrayMap<M>
      * update (<8K checks) or every block position within a sub-chunk (16^3 checks). This is painfully slow and results
      * in a tremendous amount of CPU time being spent here when chunks are unloaded on the client and server.
      *
-     * To work around this, we maintain a bit-field of queued updates by chunk position so we can simply select every
-     * light update within a section without excessive iteration. The bit-field only requires 64 bytes of memory per
-     * section with queued updates, and does not require expensive hashing in order to track updates within it. In order
-     * to avoid as much overhead as possible when looking up a bit-field for a given chunk section, the previous lookup
-     * is cached and used where possible. The integer key for each bucket can be computed by performing a simple bit
-     * mask over the already-encoded block position value.
+     * To work around this, the pending updates are stored per chunk section (see {@link SectionedPendingUpdateMap}),
+     * alongside a bit-field of the positions they occupy, so we can simply select every light update within a section
+     * without excessive iteration.
      */
     @Override
     public void cancelUpdatesForChunk(long sectionPos) {
-        long key = getBucketKeyForSection(sectionPos);
-        BitSet bits = this.removeChunkBucket(key);
-
-        if (bits != null && !bits.isEmpty()) {
-            int startX = ChunkSectionPos.unpackX(sectionPos) << 4;
-            int startY = ChunkSectionPos.unpackY(sectionPos) << 4;
-            int startZ = ChunkSectionPos.unpackZ(sectionPos) << 4;
-
-            for (int i = bits.nextSetBit(0); i != -1; i = bits.nextSetBit(i + 1)) {
-                int x = (i >> 8) & 15;
-                int y = (i >> 4) & 15;
-                int z = i & 15;
-
-                this.removePendingUpdate(BlockPos.asLong(startX + x, startY + y, startZ + z));
-            }
-        }
-    }
-
-    @Override
-    public void onPendingUpdateRemoved(long blockPos) {
-        long key = getBucketKeyForBlock(blockPos);
-
-        BitSet bits;
-
-        if (this.prevChunkBucketKey == key) {
-            bits = this.prevChunkBucketSet;
-        } else {
-            bits = this.buckets.get(key);
-
-            if (bits == null) {
-                return;
-            }
-        }
-
-        bits.clear(getLocalIndex(blockPos));
-
-        if (bits.isEmpty()) {
-            this.removeChunkBucket(key);
-        }
+        this.sectionedPendingUpdates.forEachInSection(sectionPos, pos -> this.removePendingUpdate(pos));
     }
 
+    /**
+     * Unloading a column would otherwise cancel the updates of each of its sections separately, removing every update
+     * one by one. As the whole column goes away, its sections can be dropped in bulk instead.
+     */
     @Override
-    public void onPendingUpdateAdded(long blockPos) {
-        long key = getBucketKeyForBlock(blockPos);
-
-        BitSet bits;
-
-        if (this.prevChunkBucketKey == key) {
-            bits = this.prevChunkBucketSet;
-        } else {
-            bits = this.buckets.get(key);
-
-            if (bits == null) {
-                this.buckets.put(key, bits = new BitSet(16 * 16 * 16));
-            }
-
-            this.prevChunkBucketKey = key;
-            this.prevChunkBucketSet = bits;
-        }
-
-        bits.set(getLocalIndex(blockPos));
-    }
-
-    // Used to mask a long-encoded block position into a bucket key by dropping the first 4 bits of each component
-    private static final long BLOCK_TO_BUCKET_KEY_MASK = ~BlockPos.asLong(15, 15, 15);
-
-    private long getBucketKeyForBlock(long blockPos) {
-        return blockPos & BLOCK_TO_BUCKET_KEY_MASK;
-    }
-
-    private long getBucketKeyForSection(long sectionPos) {
-        return BlockPos.asLong(ChunkSectionPos.unpackX(sectionPos) << 4, ChunkSectionPos.unpackY(sectionPos) << 4, ChunkSectionPos.unpackZ(sectionPos) << 4);
-    }
-
-    private BitSet removeChunkBucket(long key) {
-        BitSet set = this.buckets.remove(key);
-
-        if (this.prevChunkBucketSet == set) {
-            this.prevChunkBucketKey = ChunkPos.MARKER;
-            this.prevChunkBucketSet = null;
+    public void cancelUpdatesForColumn(long chunkPos) {
+        if (this.sectionedPendingUpdates.removeColumn(ChunkSectionPos.unpackX(chunkPos), ChunkSectionPos.unpackZ(chunkPos), this.bucketQueue) > 0) {
+            ((LevelPropagatorAccess) this).updateMinPendingLevel();
         }
-
-        return set;
-    }
-
-    // Finds the bit-flag index of a local position within a chunk section
-    private static int getLocalIndex(long blockPos) {
-        int x = BlockPos.unpackLongX(blockPos) & 15;
-        int y = BlockPos.unpackLongY(blockPos) & 15;
-        int z = BlockPos.unpackLongZ(blockPos) & 15;
-
-        return (x << 8) | (y << 4) | z;
     }
 
     @Shadow
@@ -3,6 +3,7 @@ package me.jellysquid.mods.phosphor.mixin.chunk.light;
 import me.jellysquid.mods.phosphor.common.chunk.level.LevelPropagatorExtended;
 import me.jellysquid.mods.phosphor.common.chunk.light.LightProviderBlockAccess;
 import me.jellysquid.mods.phosphor.common.chunk.light.LightStorageAccess;
+import me.jellysquid.mods.phosphor.common.metrics.LightEngineMetricsAccess;
 import me.jellysquid.mods.phosphor.common.util.LightUtil;
 import me.jellysquid.mods.phosphor.common.util.math.ChunkSectionPosHelper;
 import me.jellysquid.mods.phosphor.common.util.math.DirectionHelper;
@@ -55,8 +56,6 @@ public abstract class MixinChunkSkyLightProvider extends ChunkLightProvider<SkyL
         return this.getPropagatedLevel(fromId, null, toId, currentLevel);
     }
 
-    private int counterBranchA, counterBranchB, counterBranchC;
-
     /**
      * This breaks up the call to method_20479 into smaller parts so we do not have to pass a mutable heap object
      * to the method in order to extract the light result. This has a few other advantages, allowing us to:
@@ -157,6 +156,8 @@ public abstract class MixinChunkSkyLightProvider extends ChunkLightProvider<SkyL
     @Override
     @Overwrite
     public void propagateLevel(long id, int targetLevel, boolean mergeAsMin) {
+        ((LightEngineMetricsAccess) this).getMetrics().countPropagation(id);
+
         long chunkId = ChunkSectionPos.fromBlockPos(id);
 
         int x = BlockPos.unpackLongX(id);
@@ -256,6 +257,8 @@ public abstract class MixinChunkSkyLightProvider extends ChunkLightProvider<SkyL
      */
     @Overwrite
     public int recalculateLevel(long id, long excludedId, int maxLevel) {
+        ((LightEngineMetricsAccess) this).getMetrics().attributeWork(id);
+
         int currentLevel = maxLevel;
 
         // MC-196542: Remove special handling of source-skylight
@@ -1,31 +1,51 @@
 package me.jellysquid.mods.phosphor.mixin.chunk.light;
 
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import me.jellysquid.mods.phosphor.common.chunk.light.IReadonly;
 import me.jellysquid.mods.phosphor.common.chunk.light.SharedNibbleArrayMap;
+import me.jellysquid.mods.phosphor.common.config.PhosphorConfig;
+import me.jellysquid.mods.phosphor.common.util.chunk.light.LightmapFactory;
 import me.jellysquid.mods.phosphor.common.util.collections.DoubleBufferedLong2ObjectHashMap;
+import me.jellysquid.mods.phosphor.common.util.collections.DoubleBufferedLong2ObjectMap;
+import me.jellysquid.mods.phosphor.common.util.collections.DoubleBufferedRegionSectionMap;
+import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.world.chunk.ChunkNibbleArray;
 import net.minecraft.world.chunk.ChunkToNibbleArrayMap;
 import org.spongepowered.asm.mixin.*;
 
+import java.util.Arrays;
+
 @SuppressWarnings("OverwriteModifiers")
 @Mixin(ChunkToNibbleArrayMap.class)
 public abstract class MixinChunkToNibbleArrayMap implements SharedNibbleArrayMap {
     @Shadow
     private boolean cacheEnabled;
 
-    @Shadow
-    @Final
-    private long[] cachePositions;
+    // Replaces the two entry cache of vanilla, which is thrashed when light propagates across the corners of sections
+    private static final int CACHE_SIZE = 16;
 
-    @Shadow
-    @Final
-    private ChunkNibbleArray[] cacheArrays;
+    // An entry is only valid if its epoch matches the current one, so that the cache can be cleared in constant time.
+    // Only allocated for the owned view, as shared copies never enable the cache
+    private long[] cacheKeys;
+    private ChunkNibbleArray[] cacheValues;
+    private int[] cacheEpochs;
+    private int cacheEpoch = 1;
 
-    @Shadow
-    public abstract void clearCache();
+    // Only counted with PhosphorConfig#LIGHTMAP_CACHE_STATISTICS, as lookups also come from other threads
+    private long cacheHits;
+    private long cacheMisses;
 
-    private DoubleBufferedLong2ObjectHashMap<ChunkNibbleArray> queue;
+    private DoubleBufferedLong2ObjectMap<ChunkNibbleArray> queue;
     private boolean isShared;
 
+    // Only maintained for the owned view, as shared copies are never written into
+    private int readonlyLightmapCount;
+
+    // The sections of each column which hold a lightmap in the owned view. The lower half holds all lightmaps, the
+    // upper half only those which are not readonly. Only allocated for the owned view
+    private Long2LongOpenHashMap sectionMasks;
+
     /**
      * @reason Allow shared access, avoid copying
      * @author JellySquid
@@ -34,9 +54,7 @@ public abstract class MixinChunkToNibbleArrayMap implements SharedNibbleArrayMap
     public void replaceWithCopy(long pos) {
         this.checkExclusiveOwner();
 
-        this.queue.putSync(pos, this.queue.getSync(pos).copy());
-
-        this.clearCache();
+        this.put(pos, LightmapFactory.copy(this.queue.getSync(pos)));
     }
 
     /**
@@ -46,13 +64,18 @@ public abstract class MixinChunkToNibbleArrayMap implements SharedNibbleArrayMap
     @Overwrite
     public ChunkNibbleArray get(long pos) {
         if (this.cacheEnabled) {
-            // Hoist array field access out of the loop to allow the JVM to drop bounds checks
-            long[] cachePositions = this.cachePositions;
+            int slot = getCacheSlot(pos);
 
-            for(int i = 0; i < cachePositions.length; ++i) {
-                if (pos == cachePositions[i]) {
-                    return this.cacheArrays[i];
+            if (this.cacheEpochs[slot] == this.cacheEpoch && this.cacheKeys[slot] == pos) {
+                if (PhosphorConfig.LIGHTMAP_CACHE_STATISTICS) {
+                    this.cacheHits++;
                 }
+
+                return this.cacheValues[slot];
+            }
+
+            if (PhosphorConfig.LIGHTMAP_CACHE_STATISTICS) {
+                this.cacheMisses++;
             }
         }
 
@@ -60,6 +83,38 @@ public abstract class MixinChunkToNibbleArrayMap implements SharedNibbleArrayMap
         return this.getUncached(pos);
     }
 
+    /**
+     * @reason Invalidate all entries of the larger cache at once
+     * @author PhiPro
+     */
+    @Overwrite
+    public void clearCache() {
+        if (++this.cacheEpoch == 0) {
+            // Entries of the first epoch would become valid again after the counter wrapped around
+            if (this.cacheEpochs != null) {
+                Arrays.fill(this.cacheEpochs, 0);
+                Arrays.fill(this.cacheValues, null);
+            }
+
+            this.cacheEpoch = 1;
+        }
+    }
+
+    // Entries are also dropped when their lightmap is replaced, so that the cache never hands out a stale lightmap even
+    // if clearCache() is only called after a batch of changes
+    private void invalidateCacheEntry(long pos) {
+        int slot = getCacheSlot(pos);
+
+        if (this.cacheKeys[slot] == pos) {
+            this.cacheEpochs[slot] = 0;
+            this.cacheValues[slot] = null;
+        }
+    }
+
+    private static int getCacheSlot(long pos) {
+        return (int) HashCommon.mix(pos) & (CACHE_SIZE - 1);
+    }
+
     private ChunkNibbleArray getUncached(long pos) {
         ChunkNibbleArray array;
 
@@ -74,16 +129,11 @@ public abstract class MixinChunkToNibbleArrayMap implements SharedNibbleArrayMap
         }
 
         if (this.cacheEnabled) {
-            long[] cachePositions = this.cachePositions;
-            ChunkNibbleArray[] cacheArrays = this.cacheArrays;
-
-            for(int i = cacheArrays.length - 1; i > 0; --i) {
-                cachePositions[i] = cachePositions[i - 1];
-                cacheArrays[i] = cacheArrays[i - 1];
-            }
+            int slot = getCacheSlot(pos);
 
-            cachePositions[0] = pos;
-            cacheArrays[0] = array;
+            this.cacheKeys[slot] = pos;
+            this.cacheValues[slot] = array;
+            this.cacheEpochs[slot] = this.cacheEpoch;
         }
 
         return array;
@@ -97,7 +147,10 @@ public abstract class MixinChunkToNibbleArrayMap implements SharedNibbleArrayMap
     public void put(long pos, ChunkNibbleArray data) {
         this.checkExclusiveOwner();
 
-        this.queue.putSync(pos, data);
+        final ChunkNibbleArray prev = this.queue.putSync(pos, data);
+        this.readonlyLightmapCount += getReadonlyCount(data) - getReadonlyCount(prev);
+        this.updateSectionMasks(pos, data);
+        this.invalidateCacheEntry(pos);
     }
 
     /**
@@ -108,7 +161,12 @@ public abstract class MixinChunkToNibbleArrayMap implements SharedNibbleArrayMap
     public ChunkNibbleArray removeChunk(long chunkPos) {
         this.checkExclusiveOwner();
 
-        return this.queue.removeSync(chunkPos);
+        final ChunkNibbleArray prev = this.queue.removeSync(chunkPos);
+        this.readonlyLightmapCount -= getReadonlyCount(prev);
+        this.updateSectionMasks(chunkPos, null);
+        this.invalidateCacheEntry(chunkPos);
+
+        return prev;
     }
 
     /**
@@ -134,8 +192,61 @@ public abstract class MixinChunkToNibbleArrayMap implements SharedNibbleArrayMap
         }
     }
 
+    private void updateSectionMasks(final long sectionPos, final ChunkNibbleArray lightmap) {
+        final int index = ChunkSectionPos.unpackY(sectionPos) + 1;
+
+        // Lightmaps are only stored for the sections from directly below to directly above the world
+        if (index < 0 || index >= 18) {
+            return;
+        }
+
+        final long columnPos = ChunkSectionPos.withZeroY(sectionPos);
+        final long bits = (1L << index) | (1L << (index + 32));
+
+        long masks = this.sectionMasks.get(columnPos) & ~bits;
+
+        if (lightmap != null) {
+            masks |= ((IReadonly) lightmap).isReadonly() ? (1L << index) : bits;
+        }
+
+        if (masks == 0L) {
+            this.sectionMasks.remove(columnPos);
+        } else {
+            this.sectionMasks.put(columnPos, masks);
+        }
+    }
+
+    private static int getReadonlyCount(final ChunkNibbleArray lightmap) {
+        return lightmap != null && ((IReadonly) lightmap).isReadonly() ? 1 : 0;
+    }
+
+    @Override
+    public int getReadonlyLightmapCount() {
+        return this.readonlyLightmapCount;
+    }
+
+    @Override
+    public long getCacheHits() {
+        return this.cacheHits;
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return this.cacheMisses;
+    }
+
     @Override
-    public DoubleBufferedLong2ObjectHashMap<ChunkNibbleArray> getUpdateQueue() {
+    public int getSectionMask(final long columnPos) {
+        return (int) this.sectionMasks.get(columnPos);
+    }
+
+    @Override
+    public int getLightmapMask(final long columnPos) {
+        return (int) (this.sectionMasks.get(columnPos) >>> 32);
+    }
+
+    @Override
+    public DoubleBufferedLong2ObjectMap<ChunkNibbleArray> getUpdateQueue() {
         return this.queue;
     }
 
@@ -144,6 +255,9 @@ public abstract class MixinChunkToNibbleArrayMap implements SharedNibbleArrayMap
         this.queue = map.getUpdateQueue();
         this.isShared = this.queue != null;
 
+        // Shared copies are read by other threads and must never use the cache, which has not been allocated for them
+        this.cacheEnabled = false;
+
         if (this.isShared) {
             this.queue.flushChangesSync();
         }
@@ -155,6 +269,16 @@ public abstract class MixinChunkToNibbleArrayMap implements SharedNibbleArrayMap
             throw new IllegalStateException("Map already initialized");
         }
 
-        this.queue = new DoubleBufferedLong2ObjectHashMap<>();
+        if (PhosphorConfig.REGION_LIGHTMAP_INDEX) {
+            this.queue = new DoubleBufferedRegionSectionMap<>();
+        } else {
+            this.queue = new DoubleBufferedLong2ObjectHashMap<>();
+        }
+
+        this.sectionMasks = new Long2LongOpenHashMap();
+
+        this.cacheKeys = new long[CACHE_SIZE];
+        this.cacheValues = new ChunkNibbleArray[CACHE_SIZE];
+        this.cacheEpochs = new int[CACHE_SIZE];
     }
 }
@@ -1,23 +1,27 @@
 package me.jellysquid.mods.phosphor.mixin.chunk.light;
 
 import it.unimi.dsi.fastutil.longs.Long2ByteMap;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
 import me.jellysquid.mods.phosphor.common.chunk.level.LevelPropagatorExtended;
-import me.jellysquid.mods.phosphor.common.chunk.level.LevelUpdateListener;
 import me.jellysquid.mods.phosphor.common.chunk.light.LevelPropagatorAccess;
+import me.jellysquid.mods.phosphor.common.util.collections.LevelBucketQueue;
+import me.jellysquid.mods.phosphor.common.util.collections.SectionedPendingUpdateMap;
 import net.minecraft.block.BlockState;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.chunk.light.LevelPropagator;
 import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Mutable;
+import org.spongepowered.asm.mixin.Overwrite;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.gen.Invoker;
-import org.spongepowered.asm.mixin.injection.At;
-import org.spongepowered.asm.mixin.injection.Redirect;
 
 @Mixin(LevelPropagator.class)
-public abstract class MixinLevelPropagator implements LevelPropagatorExtended, LevelUpdateListener, LevelPropagatorAccess {
+public abstract class MixinLevelPropagator implements LevelPropagatorExtended, LevelPropagatorAccess {
     @Shadow
     @Final
+    @Mutable
     private Long2ByteMap pendingUpdates;
 
     @Shadow
@@ -39,15 +43,191 @@ public abstract class MixinLevelPropagator implements LevelPropagatorExtended, L
     @Shadow
     private int minPendingLevel;
 
+    @Shadow
+    @Final
+    private LongLinkedOpenHashSet[] pendingIdUpdatesByLevel;
+
+    @Shadow
+    protected abstract void setLevel(long id, int level);
+
+    @Shadow
+    protected abstract void propagateLevel(long id, int level, boolean decrease);
+
+    @Unique
+    private LevelBucketQueue bucketQueue;
+
     @Override
     @Invoker("propagateLevel")
     public abstract void invokePropagateLevel(long sourceId, long targetId, int level, boolean decrease);
 
+    @Override
+    @Invoker("recalculateLevel")
+    public abstract int invokeRecalculateLevel(long id, long excludedId, int maxLevel);
+
     @Override
     public void checkForUpdates() {
         this.hasPendingUpdates = this.minPendingLevel < this.levelCount;
     }
 
+    @Override
+    public int countPendingUpdates() {
+        return this.pendingUpdates.size();
+    }
+
+    @Override
+    public void setPendingUpdateMap(Long2ByteMap map) {
+        if (!this.pendingUpdates.isEmpty()) {
+            throw new IllegalStateException("Pending updates can only be replaced while there are none");
+        }
+
+        map.defaultReturnValue(this.pendingUpdates.defaultReturnValue());
+
+        this.pendingUpdates = map;
+    }
+
+    @Override
+    public void setPendingUpdateQueue(LevelBucketQueue queue) {
+        if (this.minPendingLevel < this.levelCount) {
+            throw new IllegalStateException("Pending updates can only be replaced while there are none");
+        }
+
+        this.bucketQueue = queue;
+    }
+
+    @Override
+    public void updateMinPendingLevel() {
+        if (this.minPendingLevel < this.levelCount && this.isLevelEmpty(this.minPendingLevel)) {
+            this.increaseMinPendingLevel(this.levelCount);
+        }
+
+        this.hasPendingUpdates = this.minPendingLevel < this.levelCount;
+    }
+
+    /**
+     * @reason Use the bucket queue if installed
+     * @author PhiPro
+     */
+    @Overwrite
+    private void increaseMinPendingLevel(int maxLevel) {
+        int prevLevel = this.minPendingLevel;
+        this.minPendingLevel = maxLevel;
+
+        for (int level = prevLevel + 1; level < maxLevel; level++) {
+            if (!this.isLevelEmpty(level)) {
+                this.minPendingLevel = level;
+                break;
+            }
+        }
+    }
+
+    /**
+     * @reason Use the bucket queue if installed
+     * @author PhiPro
+     */
+    @Overwrite
+    private void removePendingUpdate(long id, int level, int levelCount, boolean removeFully) {
+        // The queue has to be updated first, as it stores its state alongside the pending level
+        if (this.bucketQueue != null) {
+            int queuedLevel = this.bucketQueue.remove(id);
+
+            // The level passed by vanilla is derived from the current level of the position, which may have changed
+            // since it was scheduled. The queue knows the actual level, so use it to keep the minimum level consistent.
+            if (queuedLevel != SectionedPendingUpdateMap.NOT_QUEUED) {
+                level = queuedLevel;
+            }
+        } else {
+            this.pendingIdUpdatesByLevel[level].remove(id);
+        }
+
+        if (removeFully) {
+            this.pendingUpdates.remove(id);
+        }
+
+        if (this.isLevelEmpty(level) && this.minPendingLevel == level) {
+            this.increaseMinPendingLevel(levelCount);
+        }
+    }
+
+    /**
+     * @reason Use the bucket queue if installed
+     * @author PhiPro
+     */
+    @Overwrite
+    private void addPendingUpdate(long id, int level, int targetLevel) {
+        this.pendingUpdates.put(id, (byte) level);
+
+        if (this.bucketQueue != null) {
+            int prevLevel = this.bucketQueue.add(id, targetLevel);
+
+            // Vanilla only moves positions between levels through removePendingUpdate, but updateLevel keeps a position
+            // scheduled when its pending level is unchanged, even if it is queued in another level than the target one
+            if (prevLevel != SectionedPendingUpdateMap.NOT_QUEUED && prevLevel != targetLevel
+                    && this.minPendingLevel == prevLevel && this.isLevelEmpty(prevLevel)) {
+                this.increaseMinPendingLevel(this.levelCount);
+            }
+        } else {
+            this.pendingIdUpdatesByLevel[targetLevel].add(id);
+        }
+
+        if (this.minPendingLevel > targetLevel) {
+            this.minPendingLevel = targetLevel;
+        }
+    }
+
+    /**
+     * @reason Use the bucket queue if installed
+     * @author PhiPro
+     */
+    @Overwrite
+    protected final int applyPendingUpdates(int maxSteps) {
+        if (this.minPendingLevel >= this.levelCount) {
+            return maxSteps;
+        }
+
+        while (this.minPendingLevel < this.levelCount && maxSteps > 0) {
+            --maxSteps;
+
+            final long id;
+
+            if (this.bucketQueue != null) {
+                id = this.bucketQueue.removeFirst(this.minPendingLevel);
+            } else {
+                id = this.pendingIdUpdatesByLevel[this.minPendingLevel].removeFirstLong();
+            }
+
+            // [VanillaCopy] LevelPropagator#applyPendingUpdates(int)
+            int currentLevel = MathHelper.clamp(this.getLevel(id), 0, this.levelCount - 1);
+
+            if (this.isLevelEmpty(this.minPendingLevel)) {
+                this.increaseMinPendingLevel(this.levelCount);
+            }
+
+            int pendingLevel = this.pendingUpdates.remove(id) & 0xFF;
+
+            if (pendingLevel < currentLevel) {
+                this.setLevel(id, pendingLevel);
+                this.propagateLevel(id, pendingLevel, true);
+            } else if (pendingLevel > currentLevel) {
+                this.addPendingUpdate(id, pendingLevel, Math.min(this.levelCount - 1, pendingLevel));
+                this.setLevel(id, this.levelCount - 1);
+                this.propagateLevel(id, currentLevel, false);
+            }
+        }
+
+        this.hasPendingUpdates = this.minPendingLevel < this.levelCount;
+
+        return maxSteps;
+    }
+
+    @Unique
+    private boolean isLevelEmpty(int level) {
+        if (this.bucketQueue != null) {
+            return this.bucketQueue.isEmpty(level);
+        }
+
+        return this.pendingIdUpdatesByLevel[level].isEmpty();
+    }
+
     // [VanillaCopy] LevelPropagator#propagateLevel(long, long, int, boolean)
     @Override
     public void propagateLevel(long sourceId, BlockState sourceState, long targetId, int level, boolean decrease) {
@@ -82,36 +262,4 @@ public abstract class MixinLevelPropagator implements LevelPropagatorExtended, L
     public int getPropagatedLevel(long sourceId, BlockState sourceState, long targetId, int level) {
         return this.getPropagatedLevel(sourceId, targetId, level);
     }
-
-    @Redirect(method = { "removePendingUpdate(JIIZ)V", "applyPendingUpdates" }, at = @At(value = "INVOKE", target = "Lit/unimi/dsi/fastutil/longs/Long2ByteMap;remove(J)B", remap = false))
-    private byte redirectRemovePendingUpdate(Long2ByteMap map, long key) {
-        byte ret = map.remove(key);
-
-        if (ret != map.defaultReturnValue()) {
-            this.onPendingUpdateRemoved(key);
-        }
-
-        return ret;
-    }
-
-    @Redirect(method = "addPendingUpdate", at = @At(value = "INVOKE", target = "Lit/unimi/dsi/fastutil/longs/Long2ByteMap;put(JB)B", remap = false))
-    private byte redirectAddPendingUpdate(Long2ByteMap map, long key, byte value) {
-        byte ret = map.put(key, value);
-
-        if (ret == map.defaultReturnValue()) {
-            this.onPendingUpdateAdded(key);
-        }
-
-        return ret;
-    }
-
-    @Override
-    public void onPendingUpdateAdded(long key) {
-        // NO-OP
-    }
-
-    @Override
-    public void onPendingUpdateRemoved(long key) {
-        // NO-OP
-    }
 }
@@ -1,9 +1,9 @@
 package me.jellysquid.mods.phosphor.mixin.chunk.light;
 
-import it.unimi.dsi.fastutil.longs.Long2IntMap;
-import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
@@ -13,7 +13,15 @@ import me.jellysquid.mods.phosphor.common.chunk.light.LightInitializer;
 import me.jellysquid.mods.phosphor.common.chunk.light.LightProviderUpdateTracker;
 import me.jellysquid.mods.phosphor.common.chunk.light.LightStorageAccess;
 import me.jellysquid.mods.phosphor.common.chunk.light.SharedLightStorageAccess;
+import me.jellysquid.mods.phosphor.common.chunk.light.SharedNibbleArrayMap;
+import me.jellysquid.mods.phosphor.common.jfr.LightEvents;
+import me.jellysquid.mods.phosphor.common.metrics.LightEngineMetrics;
 import me.jellysquid.mods.phosphor.common.util.chunk.light.EmptyChunkNibbleArray;
+import me.jellysquid.mods.phosphor.common.util.chunk.light.InternedChunkNibbleArray;
+import me.jellysquid.mods.phosphor.common.util.chunk.light.LightColumnData;
+import me.jellysquid.mods.phosphor.common.util.chunk.light.LightmapArrayPool;
+import me.jellysquid.mods.phosphor.common.util.chunk.light.LightmapInterner;
+import me.jellysquid.mods.phosphor.common.util.chunk.light.PackedChunkNibbleArray;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.util.math.Direction;
@@ -186,7 +194,8 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
         this.changeLightmapComplexity(chunkPos, this.getLightmapComplexityChange(blockPos, oldVal, value, lightmap));
 
         if (this.dirtySections.add(chunkPos)) {
-            this.storage.replaceWithCopy(chunkPos);
+            this.replaceWithCopy(chunkPos);
+            this.metrics.countLightmapCopied();
         }
 
         ChunkNibbleArray nibble = this.getLightSection(chunkPos, true);
@@ -220,9 +229,9 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
         }
 
         if (oldLevel >= 2 && level < 2) {
-            this.nonOptimizableSections.add(id);
+            this.setSectionNonOptimizable(id, true);
 
-            if (this.enabledChunks.contains(ChunkSectionPos.withZeroY(id)) && !this.vanillaLightmapsToRemove.remove(id) && this.getLightSection(id, true) == null) {
+            if (this.isChunkEnabled(ChunkSectionPos.withZeroY(id)) && !this.vanillaLightmapsToRemove.remove(id) && this.getLightSection(id, true) == null) {
                 this.storage.put(id, this.createTrivialVanillaLightmap(id));
                 this.dirtySections.add(id);
                 this.storage.clearCache();
@@ -230,9 +239,9 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
         }
 
         if (oldLevel < 2 && level >= 2) {
-            this.nonOptimizableSections.remove(id);
+            this.setSectionNonOptimizable(id, false);
 
-            if (this.enabledChunks.contains(id)) {
+            if (this.isChunkEnabled(id)) {
                 final ChunkNibbleArray lightmap = this.getLightSection(id, true);
 
                 if (lightmap != null && ((IReadonly) lightmap).isReadonly()) {
@@ -265,6 +274,11 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
             return;
         }
 
+        final Object event = LightEvents.beginUpdateStorage();
+        final int chunksEnabled = this.markedEnabledChunks.size();
+        final int lightmapsQueued = this.queuedSections.size();
+        final int trivialLightmaps = this.trivialLightmaps.size();
+
         this.initializeChunks();
         this.addQueuedLightmaps(chunkLightProvider);
         this.removeTrivialLightmaps(chunkLightProvider);
@@ -289,6 +303,8 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
         // that is unneeded now because we removed them earlier.
 
         this.hasLightUpdates = false;
+
+        LightEvents.commitUpdateStorage(event, this.metrics, chunksEnabled, lightmapsQueued, trivialLightmaps);
     }
 
     /**
@@ -362,7 +378,18 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
      */
     @Overwrite
     public void notifyChanges() {
+        this.internStableLightmaps();
+
+        final int sectionsPublished = this.dirtySections.size();
+        final int sectionsNotified = this.notifySections.size();
+
+        final Object event = sectionsPublished != 0 || sectionsNotified != 0 ? LightEvents.beginNotifyChanges() : null;
+
         if (!this.dirtySections.isEmpty()) {
+            this.packLightmaps();
+
+            this.metrics.countPublish(this.dirtySections.size());
+
             // This could result in changes being flushed to various arrays, so write lock.
             long stamp = this.uncachedLightArraysLock.writeLock();
 
@@ -376,6 +403,8 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
                 this.uncachedLightArraysLock.unlockWrite(stamp);
             }
 
+            this.lightmapArrayPool.onPublish();
+
             this.dirtySections.clear();
         }
 
@@ -390,6 +419,97 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
 
             this.notifySections.clear();
         }
+
+        LightEvents.commitNotifyChanges(event, this.metrics, sectionsPublished, sectionsNotified);
+    }
+
+    /**
+     * Replaces the lightmaps written to since the last publish by a {@link PackedChunkNibbleArray} if they consist of only
+     * a few distinct values. Lightmaps are stable once published, as further writes need to copy them first.
+     */
+    @Unique
+    private void packLightmaps() {
+        for (final LongIterator it = this.dirtySections.iterator(); it.hasNext(); ) {
+            final long sectionPos = it.nextLong();
+            final ChunkNibbleArray lightmap = this.storage.get(sectionPos);
+
+            if (lightmap != null && !lightmap.isUninitialized() && !((IReadonly) lightmap).isReadonly()
+                    && !(lightmap instanceof PackedChunkNibbleArray && ((PackedChunkNibbleArray) lightmap).isPacked())
+                    && !(lightmap instanceof InternedChunkNibbleArray)) {
+                this.packableLightmaps.add(sectionPos);
+            }
+        }
+
+        // Collected beforehand, as packing a lightmap can mark further sections as dirty
+
+        for (int i = 0; i < this.packableLightmaps.size(); ++i) {
+            final long sectionPos = this.packableLightmaps.getLong(i);
+            final ChunkNibbleArray lightmap = this.storage.get(sectionPos);
+            final ChunkNibbleArray packed = PackedChunkNibbleArray.pack(lightmap);
+
+            if (packed != null) {
+                this.storage.put(sectionPos, packed);
+                this.storage.clearCache();
+
+                this.lightmapArrayPool.retire(lightmap);
+                this.onLightmapReplaced(sectionPos, packed);
+            }
+        }
+
+        this.packableLightmaps.clear();
+    }
+
+    /**
+     * Shares the contents of lightmaps which have not been written to since the previous publish with identical
+     * lightmaps through {@link #lightmapInterner}. Only lightmaps which could not be packed are left as regular
+     * lightmaps at this point. Sections written to every tick are never considered, so their contents are not hashed
+     * over and over again.
+     */
+    @Unique
+    private void internStableLightmaps() {
+        for (final LongIterator it = this.recentlyWrittenSections.iterator(); it.hasNext(); ) {
+            final long sectionPos = it.nextLong();
+
+            if (this.dirtySections.contains(sectionPos)) {
+                continue;
+            }
+
+            final ChunkNibbleArray lightmap = this.storage.get(sectionPos);
+
+            if (lightmap == null) {
+                continue;
+            }
+
+            final ChunkNibbleArray interned = this.lightmapInterner.intern(lightmap);
+
+            if (interned != null) {
+                this.storage.put(sectionPos, interned);
+                this.storage.clearCache();
+
+                this.lightmapArrayPool.retire(lightmap);
+                this.onLightmapReplaced(sectionPos, interned);
+
+                this.internedSections.add(sectionPos);
+            }
+        }
+
+        this.recentlyWrittenSections.clear();
+        this.recentlyWrittenSections.addAll(this.dirtySections);
+
+        // Interned lightmaps need to be published, but are not considered as written to
+        for (int i = 0; i < this.internedSections.size(); ++i) {
+            this.dirtySections.add(this.internedSections.getLong(i));
+        }
+
+        this.internedSections.clear();
+    }
+
+    /**
+     * Called after the lightmap at the provided <code>sectionPos</code> has been replaced by an equivalent packed or
+     * interned lightmap
+     */
+    @Unique
+    protected void onLightmapReplaced(final long sectionPos, final ChunkNibbleArray lightmap) {
     }
 
     @Override
@@ -407,6 +527,26 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
         return 0;
     }
 
+    @Override
+    public void setMetrics(final LightEngineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int countReadonlyLightmaps() {
+        return ((SharedNibbleArrayMap) this.storage).getReadonlyLightmapCount();
+    }
+
+    @Override
+    public long countLightmapCacheHits() {
+        return ((SharedNibbleArrayMap) this.storage).getCacheHits();
+    }
+
+    @Override
+    public long countLightmapCacheMisses() {
+        return ((SharedNibbleArrayMap) this.storage).getCacheMisses();
+    }
+
     @Unique
     protected void beforeChunkEnabled(final long chunkPos) {
     }
@@ -415,10 +555,13 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
     protected void afterChunkDisabled(final long chunkPos) {
     }
 
+    // Holds whether chunks are enabled, lightmap complexities and non-optimizable sections
     @Unique
-    protected final LongSet enabledChunks = new LongOpenHashSet();
+    private final Long2ObjectOpenHashMap<LightColumnData> columns = new Long2ObjectOpenHashMap<>();
     @Unique
-    protected final Long2IntMap lightmapComplexities = setDefaultReturnValue(new Long2IntOpenHashMap(), -1);
+    private long cachedColumnPos = Long.MAX_VALUE;
+    @Unique
+    private LightColumnData cachedColumn;
 
     @Unique
     private final LongSet markedEnabledChunks = new LongOpenHashSet();
@@ -427,14 +570,116 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
     @Unique
     private final LongSet vanillaLightmapsToRemove = new LongOpenHashSet();
 
+    @Unique
+    protected LightEngineMetrics metrics;
+
+    @Unique
+    protected final LightmapArrayPool lightmapArrayPool = new LightmapArrayPool();
+
+    @Unique
+    private final LongArrayList packableLightmaps = new LongArrayList();
+
+    @Unique
+    protected final LightmapInterner lightmapInterner = new LightmapInterner();
+    @Unique
+    private final LongSet recentlyWrittenSections = new LongOpenHashSet();
+    @Unique
+    private final LongArrayList internedSections = new LongArrayList();
+
+    /**
+     * Returns the state of the chunk column at the provided <code>chunkPos</code>, or null if it has none
+     */
+    @Unique
+    protected LightColumnData getColumn(final long chunkPos) {
+        // Consecutive accesses mostly target the same column
+        if (this.cachedColumnPos == chunkPos) {
+            return this.cachedColumn;
+        }
+
+        final LightColumnData column = this.columns.get(chunkPos);
+
+        if (column != null) {
+            this.cachedColumnPos = chunkPos;
+            this.cachedColumn = column;
+        }
+
+        return column;
+    }
+
+    @Unique
+    protected LightColumnData getOrCreateColumn(final long chunkPos) {
+        LightColumnData column = this.getColumn(chunkPos);
+
+        if (column == null) {
+            column = new LightColumnData();
+            this.columns.put(chunkPos, column);
+
+            this.cachedColumnPos = chunkPos;
+            this.cachedColumn = column;
+        }
+
+        return column;
+    }
+
+    /**
+     * Drops the state of the chunk column at the provided <code>chunkPos</code> once it no longer holds any
+     */
+    @Unique
+    protected void releaseColumnIfEmpty(final long chunkPos, final LightColumnData column) {
+        if (column.isEmpty()) {
+            this.columns.remove(chunkPos);
+
+            if (this.cachedColumnPos == chunkPos) {
+                this.cachedColumnPos = Long.MAX_VALUE;
+                this.cachedColumn = null;
+            }
+        }
+    }
+
+    @Unique
+    protected boolean isChunkEnabled(final long chunkPos) {
+        final LightColumnData column = this.getColumn(chunkPos);
+        return column != null && column.isEnabled();
+    }
+
     // This is put here since the relevant methods to overwrite are located in LightStorage
     @Unique
-    protected LongSet nonOptimizableSections = new LongOpenHashSet();
+    protected boolean isSectionNonOptimizable(final long sectionPos) {
+        final LightColumnData column = this.getColumn(ChunkSectionPos.withZeroY(sectionPos));
+        return column != null && column.isNonOptimizable(ChunkSectionPos.unpackY(sectionPos));
+    }
+
+    @Unique
+    private void setSectionNonOptimizable(final long sectionPos, final boolean nonOptimizable) {
+        final long chunkPos = ChunkSectionPos.withZeroY(sectionPos);
+        final LightColumnData column = this.getOrCreateColumn(chunkPos);
+
+        column.setNonOptimizable(ChunkSectionPos.unpackY(sectionPos), nonOptimizable);
+        this.releaseColumnIfEmpty(chunkPos, column);
+    }
+
+    /**
+     * Returns the complexity of the lightmap at the provided <code>sectionPos</code>, or -1 if there is none
+     */
+    @Unique
+    private int getLightmapComplexity(final long sectionPos) {
+        final LightColumnData column = this.getColumn(ChunkSectionPos.withZeroY(sectionPos));
+        return column == null ? -1 : column.getComplexity(ChunkSectionPos.unpackY(sectionPos));
+    }
 
+    /**
+     * Stores the complexity of the lightmap at the provided <code>sectionPos</code>, where -1 removes it
+     * @return The previous complexity, or -1 if there was none
+     */
     @Unique
-    private static Long2IntMap setDefaultReturnValue(final Long2IntMap map, final int rv) {
-        map.defaultReturnValue(rv);
-        return map;
+    private int putLightmapComplexity(final long sectionPos, final int complexity) {
+        final long chunkPos = ChunkSectionPos.withZeroY(sectionPos);
+        final LightColumnData column = this.getOrCreateColumn(chunkPos);
+
+        final int oldComplexity = column.setComplexity(ChunkSectionPos.unpackY(sectionPos), complexity);
+        this.releaseColumnIfEmpty(chunkPos, column);
+
+        return oldComplexity;
     }
 
     @Unique
@@ -445,7 +690,7 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
             lightmap = this.createSection(sectionPos);
         } else {
             if (((IReadonly) lightmap).isReadonly()) {
-                lightmap = lightmap.copy();
+                lightmap = this.lightmapArrayPool.copy(lightmap);
                 this.vanillaLightmapsToRemove.remove(sectionPos);
             } else {
                 return lightmap;
@@ -455,6 +700,7 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
         this.storage.put(sectionPos, lightmap);
         this.storage.clearCache();
         this.dirtySections.add(sectionPos);
+        this.metrics.countLightmapCreated();
 
         this.onLoadSection(sectionPos);
         this.setLightmapComplexity(sectionPos, 0);
@@ -462,9 +708,20 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
         return lightmap;
     }
 
+    /**
+     * Replaces the lightmap at the provided <code>sectionPos</code> with a copy, so that it can be written to without affecting the published storage
+     */
+    @Unique
+    protected void replaceWithCopy(final long sectionPos) {
+        final ChunkNibbleArray lightmap = this.storage.get(sectionPos);
+
+        this.storage.put(sectionPos, this.lightmapArrayPool.copy(lightmap));
+        this.storage.clearCache();
+    }
+
     @Unique
     protected void setLightmapComplexity(final long sectionPos, final int complexity) {
-        int oldComplexity = this.lightmapComplexities.put(sectionPos, complexity);
+        int oldComplexity = this.putLightmapComplexity(sectionPos, complexity);
 
         if (oldComplexity == 0) {
             this.trivialLightmaps.remove(sectionPos);
@@ -486,14 +743,14 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
 
     @Unique
     protected void changeLightmapComplexity(final long sectionPos, final int amount) {
-        int complexity = this.lightmapComplexities.get(sectionPos);
+        int complexity = this.getLightmapComplexity(sectionPos);
 
         if (complexity == 0) {
             this.trivialLightmaps.remove(sectionPos);
         }
 
         complexity += amount;
-        this.lightmapComplexities.put(sectionPos, complexity);
+        this.putLightmapComplexity(sectionPos, complexity);
 
         if (complexity == 0) {
             this.trivialLightmaps.add(sectionPos);
@@ -545,7 +802,7 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
      */
     @Overwrite
     public boolean hasSection(final long sectionPos) {
-        return this.enabledChunks.contains(ChunkSectionPos.withZeroY(sectionPos));
+        return this.isChunkEnabled(ChunkSectionPos.withZeroY(sectionPos));
     }
 
     @Shadow
@@ -557,7 +814,7 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
 
     @Override
     public void enableLightUpdates(final long chunkPos) {
-        if (!this.enabledChunks.contains(chunkPos)){
+        if (!this.isChunkEnabled(chunkPos)){
             this.markedEnabledChunks.add(chunkPos);
             this.markForLightUpdates();
         }
@@ -565,6 +822,9 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
 
     @Unique
     private void initializeChunks() {
+        final int chunks = this.markedEnabledChunks.size();
+        final Object event = chunks != 0 ? LightEvents.beginInitializeChunks() : null;
+
         this.storage.clearCache();
 
         for (final LongIterator it = this.markedEnabledChunks.iterator(); it.hasNext(); ) {
@@ -594,21 +854,31 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
 
             // Add lightmaps for vanilla compatibility and try to recover stripped data from vanilla saves
 
-            for (int i = -1; i < 17; ++i) {
-                final long sectionPos = ChunkSectionPos.asLong(ChunkSectionPos.unpackX(chunkPos), i, ChunkSectionPos.unpackZ(chunkPos));
+            final LightColumnData column = this.getOrCreateColumn(chunkPos);
 
-                if (this.nonOptimizableSections.contains(sectionPos) && this.getLightSection(sectionPos, true) == null) {
-                    this.storage.put(sectionPos, this.createInitialVanillaLightmap(sectionPos));
-                    this.dirtySections.add(sectionPos);
+            if (column.isNonOptimizable()) {
+                for (int i = -1; i < 17; ++i) {
+                    if (!column.isNonOptimizable(i)) {
+                        continue;
+                    }
+
+                    final long sectionPos = ChunkSectionPos.asLong(ChunkSectionPos.unpackX(chunkPos), i, ChunkSectionPos.unpackZ(chunkPos));
+
+                    if (this.getLightSection(sectionPos, true) == null) {
+                        this.storage.put(sectionPos, this.createInitialVanillaLightmap(sectionPos));
+                        this.dirtySections.add(sectionPos);
+                    }
                 }
             }
 
-            this.enabledChunks.add(chunkPos);
+            column.setEnabled(true);
         }
 
         this.storage.clearCache();
 
         this.markedEnabledChunks.clear();
+
+        LightEvents.commitInitializeChunks(event, this.metrics, chunks);
     }
 
     @Unique
@@ -623,12 +893,15 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
 
     @Override
     public void disableChunkLight(final long chunkPos, final ChunkLightProvider<?, ?> lightProvider) {
-        if (this.markedEnabledChunks.remove(chunkPos) || !this.enabledChunks.contains(chunkPos)) {
+        if (this.markedEnabledChunks.remove(chunkPos) || !this.isChunkEnabled(chunkPos)) {
             for (int i = -1; i < 17; ++i) {
                 final long sectionPos = ChunkSectionPos.asLong(ChunkSectionPos.unpackX(chunkPos), i, ChunkSectionPos.unpackZ(chunkPos));
 
-                if (this.storage.removeChunk(sectionPos) != null) {
+                final ChunkNibbleArray lightmap = this.storage.removeChunk(sectionPos);
+
+                if (lightmap != null) {
                     this.dirtySections.add(sectionPos);
+                    this.lightmapArrayPool.retire(lightmap);
                 }
             }
 
@@ -636,17 +909,14 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
         } else {
             // First need to remove all pending light updates before changing any light value
 
-            for (int i = -1; i < 17; ++i) {
-                final long sectionPos = ChunkSectionPos.asLong(ChunkSectionPos.unpackX(chunkPos), i, ChunkSectionPos.unpackZ(chunkPos));
-
-                if (this.hasSection(sectionPos)) {
-                    this.removeSection(lightProvider, sectionPos);
-                }
-            }
+            ((LightProviderUpdateTracker) lightProvider).cancelUpdatesForColumn(chunkPos);
 
             // Now the chunk can be disabled
 
-            this.enabledChunks.remove(chunkPos);
+            final LightColumnData column = this.getColumn(chunkPos);
+
+            column.setEnabled(false);
+            this.releaseColumnIfEmpty(chunkPos, column);
 
             // Now lightmaps can be removed
 
@@ -683,28 +953,34 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
      */
     @Unique
     protected boolean removeLightmap(final long sectionPos) {
-        if (this.storage.removeChunk(sectionPos) == null) {
+        final ChunkNibbleArray lightmap = this.storage.removeChunk(sectionPos);
+
+        if (lightmap == null) {
             return false;
         }
 
         this.dirtySections.add(sectionPos);
+        this.lightmapArrayPool.retire(lightmap);
 
-        if (this.lightmapComplexities.remove(sectionPos) == -1) {
+        if (this.putLightmapComplexity(sectionPos, -1) == -1) {
             this.vanillaLightmapsToRemove.remove(sectionPos);
             return false;
         } else {
             this.trivialLightmaps.remove(sectionPos);
+            this.metrics.countLightmapRemoved();
             return true;
         }
     }
 
     @Unique
     private void removeTrivialLightmaps(final ChunkLightProvider<?, ?> lightProvider) {
+        this.metrics.countTrivialLightmapsReclaimed(this.trivialLightmaps.size());
+
         for (final LongIterator it = this.trivialLightmaps.iterator(); it.hasNext(); ) {
             final long sectionPos = it.nextLong();
 
-            this.storage.removeChunk(sectionPos);
-            this.lightmapComplexities.remove(sectionPos);
+            this.lightmapArrayPool.retire(this.storage.removeChunk(sectionPos));
+            this.putLightmapComplexity(sectionPos, -1);
             this.dirtySections.add(sectionPos);
         }
 
@@ -721,7 +997,7 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
         for (final LongIterator it = this.trivialLightmaps.iterator(); it.hasNext(); ) {
             final long sectionPos = it.nextLong();
 
-            if (this.nonOptimizableSections.contains(sectionPos)) {
+            if (this.isSectionNonOptimizable(sectionPos)) {
                 this.storage.put(sectionPos, this.createTrivialVanillaLightmap(sectionPos));
             }
         }
@@ -800,7 +1076,7 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
      */
     @Overwrite
     public void enqueueSectionData(final long sectionPos, final ChunkNibbleArray array, final boolean bl) {
-        final boolean chunkEnabled = this.enabledChunks.contains(ChunkSectionPos.withZeroY(sectionPos));
+        final boolean chunkEnabled = this.isChunkEnabled(ChunkSectionPos.withZeroY(sectionPos));
 
         if (array != null) {
             if (chunkEnabled) {
@@ -818,7 +1094,7 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
             if (chunkEnabled) {
                 this.queuedSections.remove(sectionPos);
             } else {
-                this.storage.removeChunk(sectionPos);
+                this.lightmapArrayPool.retire(this.storage.removeChunk(sectionPos));
                 this.dirtySections.add(sectionPos);
             }
         }
@@ -845,6 +1121,17 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
         return null;
     }
 
+    @Redirect(
+        method = "createSection(J)Lnet/minecraft/world/chunk/ChunkNibbleArray;",
+        at = @At(
+            value = "NEW",
+            target = "()Lnet/minecraft/world/chunk/ChunkNibbleArray;"
+        )
+    )
+    private ChunkNibbleArray createLightmap() {
+        return this.lightmapArrayPool.create();
+    }
+
     @Redirect(
         method = "getLevel(J)I",
         slice = @Slice(
@@ -861,6 +1148,6 @@ public abstract class MixinLightStorage<M extends ChunkToNibbleArrayMap<M>> exte
         )
     )
     private boolean isNonOptimizable(final ChunkToNibbleArrayMap<?> lightmapArray, final long sectionPos) {
-        return this.nonOptimizableSections.contains(sectionPos);
+        return this.isSectionNonOptimizable(sectionPos);
     }
 }
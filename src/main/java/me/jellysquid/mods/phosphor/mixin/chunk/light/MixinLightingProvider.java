@@ -1,14 +1,24 @@
 package me.jellysquid.mods.phosphor.mixin.chunk.light;
 
 import me.jellysquid.mods.phosphor.common.chunk.light.InitialLightingAccess;
+import me.jellysquid.mods.phosphor.common.trace.LightTraceRecorder;
+import me.jellysquid.mods.phosphor.common.util.WorldUtil;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.LightType;
+import net.minecraft.world.chunk.ChunkNibbleArray;
+import net.minecraft.world.chunk.ChunkProvider;
 import net.minecraft.world.chunk.light.ChunkLightProvider;
 import net.minecraft.world.chunk.light.LightingProvider;
 import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 @Mixin(LightingProvider.class)
 public abstract class MixinLightingProvider implements InitialLightingAccess
@@ -37,8 +47,73 @@ public abstract class MixinLightingProvider implements InitialLightingAccess
     public void addLightSource(BlockPos pos, int level) {
     }
 
+    @Unique
+    private LightTraceRecorder traceRecorder;
+
+    @Unique
+    protected String worldName;
+
+    @Inject(method = "<init>", at = @At("RETURN"))
+    private void onInit(final ChunkProvider chunkProvider, final boolean hasBlockLight, final boolean hasSkyLight, final CallbackInfo ci) {
+        this.worldName = WorldUtil.getWorldName(chunkProvider);
+        this.traceRecorder = LightTraceRecorder.create(chunkProvider, hasBlockLight, hasSkyLight);
+    }
+
+    @Inject(method = "checkBlock", at = @At("HEAD"))
+    private void recordCheckBlock(final BlockPos pos, final CallbackInfo ci) {
+        if (this.traceRecorder != null) {
+            this.traceRecorder.checkBlock(pos);
+        }
+    }
+
+    @Inject(method = "addLightSource", at = @At("HEAD"))
+    private void recordAddLightSource(final BlockPos pos, final int level, final CallbackInfo ci) {
+        if (this.traceRecorder != null) {
+            this.traceRecorder.addLightSource(pos, level);
+        }
+    }
+
+    @Inject(method = "setSectionStatus", at = @At("HEAD"))
+    private void recordSetSectionStatus(final ChunkSectionPos pos, final boolean notReady, final CallbackInfo ci) {
+        if (this.traceRecorder != null) {
+            this.traceRecorder.setSectionStatus(pos, notReady);
+        }
+    }
+
+    @Inject(method = "enqueueSectionData", at = @At("HEAD"))
+    private void recordEnqueueSectionData(final LightType lightType, final ChunkSectionPos pos, final ChunkNibbleArray nibbles, final boolean nonEdge, final CallbackInfo ci) {
+        if (this.traceRecorder != null) {
+            this.traceRecorder.enqueueSectionData(lightType, pos, nibbles, nonEdge);
+        }
+    }
+
+    @Inject(method = "setColumnEnabled", at = @At("HEAD"))
+    private void recordSetColumnEnabled(final ChunkPos pos, final boolean enabled, final CallbackInfo ci) {
+        if (this.traceRecorder != null) {
+            this.traceRecorder.setColumnEnabled(pos, enabled);
+        }
+    }
+
+    @Inject(method = "setRetainData", at = @At("HEAD"))
+    private void recordSetRetainData(final ChunkPos pos, final boolean retainData, final CallbackInfo ci) {
+        if (this.traceRecorder != null) {
+            this.traceRecorder.setRetainData(pos, retainData);
+        }
+    }
+
+    @Inject(method = "doLightUpdates", at = @At("HEAD"))
+    private void recordDoLightUpdates(final int maxUpdateCount, final boolean doSkylight, final boolean skipEdgeLightPropagation, final CallbackInfoReturnable<Integer> ci) {
+        if (this.traceRecorder != null) {
+            this.traceRecorder.doLightUpdates(maxUpdateCount, doSkylight, skipEdgeLightPropagation);
+        }
+    }
+
     @Override
     public void enableSourceLight(final long chunkPos) {
+        if (this.traceRecorder != null) {
+            this.traceRecorder.enableSourceLight(chunkPos);
+        }
+
         if (this.blockLightProvider != null) {
             ((InitialLightingAccess) this.blockLightProvider).enableSourceLight(chunkPos);
         }
@@ -50,6 +125,10 @@ public abstract class MixinLightingProvider implements InitialLightingAccess
 
     @Override
     public void enableLightUpdates(final long chunkPos) {
+        if (this.traceRecorder != null) {
+            this.traceRecorder.enableLightUpdates(chunkPos);
+        }
+
         if (this.blockLightProvider != null) {
             ((InitialLightingAccess) this.blockLightProvider).enableLightUpdates(chunkPos);
         }
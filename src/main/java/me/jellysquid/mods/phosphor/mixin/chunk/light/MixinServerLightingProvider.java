@@ -1,6 +1,10 @@
 package me.jellysquid.mods.phosphor.mixin.chunk.light;
 
 import me.jellysquid.mods.phosphor.common.chunk.light.ServerLightingProviderAccess;
+import me.jellysquid.mods.phosphor.common.config.PhosphorConfig;
+import me.jellysquid.mods.phosphor.common.jfr.LightEvents;
+import me.jellysquid.mods.phosphor.common.metrics.LightEngineMetricsRegistry;
+import me.jellysquid.mods.phosphor.common.metrics.LightTaskStatistics;
 import me.jellysquid.mods.phosphor.common.world.ThreadedAnvilChunkStorageAccess;
 import net.minecraft.server.world.ServerLightingProvider;
 import net.minecraft.server.world.ThreadedAnvilChunkStorage;
@@ -13,6 +17,12 @@ import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Overwrite;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.ModifyArg;
+import org.spongepowered.asm.mixin.injection.ModifyVariable;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 import java.util.concurrent.CompletableFuture;
 import java.util.function.IntSupplier;
@@ -25,12 +35,71 @@ public abstract class MixinServerLightingProvider extends MixinLightingProvider
     @Shadow
     protected abstract void enqueue(int x, int z, ServerLightingProvider.Stage stage, Runnable task);
 
+    @Unique
+    private LightTaskStatistics taskStatistics;
+
+    @Inject(method = "<init>", at = @At("RETURN"))
+    private void initTaskStatistics(final CallbackInfo ci) {
+        if (PhosphorConfig.TASK_STATISTICS) {
+            this.taskStatistics = new LightTaskStatistics(this.worldName);
+            LightEngineMetricsRegistry.register(this.taskStatistics);
+        }
+    }
+
+    @Unique
+    private Runnable wrapTask(final LightTaskStatistics.Origin origin, final Runnable task) {
+        return this.taskStatistics != null ? this.taskStatistics.wrap(origin, task) : task;
+    }
+
+    @ModifyArg(
+        method = "checkBlock",
+        at = @At(
+            value = "INVOKE",
+            target = "Lnet/minecraft/server/world/ServerLightingProvider;enqueue(IILnet/minecraft/server/world/ServerLightingProvider$Stage;Ljava/lang/Runnable;)V"
+        ),
+        index = 3
+    )
+    private Runnable wrapBlockUpdateTask(final Runnable task) {
+        return this.wrapTask(LightTaskStatistics.Origin.BLOCK_UPDATE, task);
+    }
+
+    // All tasks pass through here, so this catches those which haven't been wrapped with a more specific origin
+    @ModifyVariable(
+        method = "enqueue(IILjava/util/function/IntSupplier;Lnet/minecraft/server/world/ServerLightingProvider$Stage;Ljava/lang/Runnable;)V",
+        at = @At("HEAD"),
+        argsOnly = true
+    )
+    private Runnable wrapOtherTask(final Runnable task) {
+        return this.wrapTask(LightTaskStatistics.Origin.OTHER, task);
+    }
+
+    @Inject(method = "runRemainingTasks", at = @At("HEAD"))
+    private void beginPreUpdateTasks(final CallbackInfo ci) {
+        if (this.taskStatistics != null) {
+            this.taskStatistics.setExecutingStage(LightTaskStatistics.STAGE_PRE_UPDATE);
+        }
+    }
+
+    @Inject(
+        method = "runRemainingTasks",
+        at = @At(
+            value = "INVOKE",
+            target = "Lnet/minecraft/world/chunk/light/LightingProvider;doLightUpdates(IZZ)I",
+            shift = At.Shift.AFTER
+        )
+    )
+    private void beginPostUpdateTasks(final CallbackInfo ci) {
+        if (this.taskStatistics != null) {
+            this.taskStatistics.setExecutingStage(LightTaskStatistics.STAGE_POST_UPDATE);
+        }
+    }
+
     @Override
     public CompletableFuture<Chunk> setupLightmaps(final Chunk chunk) {
         final ChunkPos chunkPos = chunk.getPos();
 
         // This evaluates the non-empty subchunks concurrently on the lighting thread...
-        this.enqueue(chunkPos.x, chunkPos.z, () -> 0, ServerLightingProvider.Stage.PRE_UPDATE, Util.debugRunnable(() -> {
+        this.enqueue(chunkPos.x, chunkPos.z, () -> 0, ServerLightingProvider.Stage.PRE_UPDATE, this.wrapTask(LightTaskStatistics.Origin.SETUP_LIGHTMAPS, LightEvents.wrapTask("PRE_UPDATE", chunkPos.x, chunkPos.z, "setupLightmaps", Util.debugRunnable(() -> {
             final ChunkSection[] chunkSections = chunk.getSectionArray();
 
             for (int i = 0; i < chunkSections.length; ++i) {
@@ -46,13 +115,13 @@ public abstract class MixinServerLightingProvider extends MixinLightingProvider
             super.enableLightUpdates(ChunkSectionPos.withZeroY(ChunkSectionPos.asLong(chunkPos.x, 0, chunkPos.z)));
         },
             () -> "setupLightmaps " + chunkPos
-        ));
+        ))));
 
         return CompletableFuture.supplyAsync(() -> {
             super.setRetainData(chunkPos, false);
             return chunk;
         },
-            (runnable) -> this.enqueue(chunkPos.x, chunkPos.z, () -> 0, ServerLightingProvider.Stage.POST_UPDATE, runnable)
+            (runnable) -> this.enqueue(chunkPos.x, chunkPos.z, () -> 0, ServerLightingProvider.Stage.POST_UPDATE, this.wrapTask(LightTaskStatistics.Origin.SETUP_LIGHTMAPS, LightEvents.wrapTask("POST_UPDATE", chunkPos.x, chunkPos.z, "setRetainData", runnable)))
         );
     }
 
@@ -68,7 +137,7 @@ public abstract class MixinServerLightingProvider extends MixinLightingProvider
     public CompletableFuture<Chunk> light(Chunk chunk, boolean excludeBlocks) {
         final ChunkPos chunkPos = chunk.getPos();
 
-        this.enqueue(chunkPos.x, chunkPos.z, ServerLightingProvider.Stage.PRE_UPDATE, Util.debugRunnable(() -> {
+        this.enqueue(chunkPos.x, chunkPos.z, ServerLightingProvider.Stage.PRE_UPDATE, this.wrapTask(LightTaskStatistics.Origin.LIGHT, LightEvents.wrapTask("PRE_UPDATE", chunkPos.x, chunkPos.z, "lightChunk", Util.debugRunnable(() -> {
             if (!chunk.isLightOn()) {
                 super.enableSourceLight(ChunkSectionPos.withZeroY(ChunkSectionPos.asLong(chunkPos.x, 0, chunkPos.z)));
             }
@@ -80,7 +149,7 @@ public abstract class MixinServerLightingProvider extends MixinLightingProvider
             }
         },
             () -> "lightChunk " + chunkPos + " " + excludeBlocks
-        ));
+        ))));
 
         return CompletableFuture.supplyAsync(() -> {
             chunk.setLightOn(true);
@@ -88,7 +157,7 @@ public abstract class MixinServerLightingProvider extends MixinLightingProvider
 
             return chunk;
         },
-            (runnable) -> this.enqueue(chunkPos.x, chunkPos.z, ServerLightingProvider.Stage.POST_UPDATE, runnable)
+            (runnable) -> this.enqueue(chunkPos.x, chunkPos.z, ServerLightingProvider.Stage.POST_UPDATE, this.wrapTask(LightTaskStatistics.Origin.LIGHT, LightEvents.wrapTask("POST_UPDATE", chunkPos.x, chunkPos.z, "releaseLightTicket", runnable)))
         );
     }
 }
@@ -1,7 +1,5 @@
 package me.jellysquid.mods.phosphor.mixin.chunk.light;
 
-import it.unimi.dsi.fastutil.longs.Long2IntMap;
-import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
@@ -9,13 +7,18 @@ import it.unimi.dsi.fastutil.longs.LongSet;
 import me.jellysquid.mods.phosphor.common.chunk.light.IReadonly;
 import me.jellysquid.mods.phosphor.common.chunk.light.LevelPropagatorAccess;
 import me.jellysquid.mods.phosphor.common.chunk.light.SharedLightStorageAccess;
+import me.jellysquid.mods.phosphor.common.chunk.light.SharedNibbleArrayMap;
 import me.jellysquid.mods.phosphor.common.chunk.light.SkyLightStorageDataAccess;
+import me.jellysquid.mods.phosphor.common.jfr.LightEvents;
 import me.jellysquid.mods.phosphor.common.util.chunk.light.EmptyChunkNibbleArray;
+import me.jellysquid.mods.phosphor.common.util.chunk.light.LightColumnData;
+import me.jellysquid.mods.phosphor.common.util.chunk.light.LightmapFactory;
 import me.jellysquid.mods.phosphor.common.util.chunk.light.SkyLightChunkNibbleArray;
 import me.jellysquid.mods.phosphor.common.util.math.ChunkSectionPosHelper;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.chunk.ChunkNibbleArray;
 import net.minecraft.world.chunk.light.ChunkLightProvider;
 import net.minecraft.world.chunk.light.SkyLightStorage;
@@ -135,13 +138,11 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
         )
     )
     private ChunkNibbleArray initializeLightmap(final long pos) {
-        final ChunkNibbleArray ret = new ChunkNibbleArray();
-
         if (this.isSectionEnabled(pos)) {
-            Arrays.fill(ret.asByteArray(), (byte) -1);
+            return this.lightmapArrayPool.createFilled((byte) -1);
         }
 
-        return ret;
+        return LightmapFactory.create();
     }
 
     @Inject(
@@ -165,20 +166,17 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
     /**
      * Forceload a lightmap above the world for initial skylight
      */
-    @Unique
-    private final LongSet preInitSkylightChunks = new LongOpenHashSet();
-
     @Override
     public void beforeChunkEnabled(final long chunkPos) {
         if (!this.isSectionEnabled(chunkPos)) {
-            this.preInitSkylightChunks.add(chunkPos);
+            this.getOrCreateColumn(chunkPos).setSkylightPreInitialized(true);
             this.updateLevel(Long.MAX_VALUE, ChunkSectionPos.asLong(ChunkSectionPos.unpackX(chunkPos), 16, ChunkSectionPos.unpackZ(chunkPos)), 1, true);
         }
     }
 
     @Override
     public void afterChunkDisabled(final long chunkPos) {
-        if (this.preInitSkylightChunks.remove(chunkPos)) {
+        if (this.clearSkylightPreInitialized(chunkPos)) {
             this.updateLevel(Long.MAX_VALUE, ChunkSectionPos.asLong(ChunkSectionPos.unpackX(chunkPos), 16, ChunkSectionPos.unpackZ(chunkPos)), 2, false);
         }
     }
@@ -187,13 +185,36 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
     protected int getInitialLevel(final long id) {
         final int ret = super.getInitialLevel(id);
 
-        if (ret >= 2 && ChunkSectionPos.unpackY(id) == 16 && this.preInitSkylightChunks.contains(ChunkSectionPos.withZeroY(id))) {
+        if (ret >= 2 && ChunkSectionPos.unpackY(id) == 16 && this.isSkylightPreInitialized(ChunkSectionPos.withZeroY(id))) {
             return 1;
         }
 
         return ret;
     }
 
+    @Unique
+    private boolean isSkylightPreInitialized(final long chunkPos) {
+        final LightColumnData column = this.getColumn(chunkPos);
+        return column != null && column.isSkylightPreInitialized();
+    }
+
+    /**
+     * @return Whether the lightmap above the world was forceloaded for the provided <code>chunkPos</code>
+     */
+    @Unique
+    private boolean clearSkylightPreInitialized(final long chunkPos) {
+        final LightColumnData column = this.getColumn(chunkPos);
+
+        if (column == null || !column.isSkylightPreInitialized()) {
+            return false;
+        }
+
+        column.setSkylightPreInitialized(false);
+        this.releaseColumnIfEmpty(chunkPos, column);
+
+        return true;
+    }
+
     @Unique
     private final LongSet initSkylightChunks = new LongOpenHashSet();
 
@@ -210,7 +231,7 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
     @Overwrite
     public void setColumnEnabled(final long chunkPos, final boolean enabled) {
         if (enabled) {
-            if (this.preInitSkylightChunks.contains(chunkPos)) {
+            if (this.isSkylightPreInitialized(chunkPos)) {
                 this.initSkylightChunks.add(chunkPos);
                 this.checkForUpdates();
             } else {
@@ -252,6 +273,9 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
             return;
         }
 
+        final Object event = LightEvents.beginLightChunks();
+        final int chunks = this.initSkylightChunks.size();
+
         final LevelPropagatorAccess levelPropagator = (LevelPropagatorAccess) lightProvider;
 
         for (final LongIterator it = this.initSkylightChunks.iterator(); it.hasNext(); ) {
@@ -260,7 +284,7 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
             final int minY = this.fillSkylightColumn(lightProvider, chunkPos);
 
             this.enabledColumns.add(chunkPos);
-            this.preInitSkylightChunks.remove(chunkPos);
+            this.clearSkylightPreInitialized(chunkPos);
             this.updateLevel(Long.MAX_VALUE, ChunkSectionPos.asLong(ChunkSectionPos.unpackX(chunkPos), 16, ChunkSectionPos.unpackZ(chunkPos)), 2, false);
 
             if (this.hasSection(ChunkSectionPos.asLong(ChunkSectionPos.unpackX(chunkPos), minY, ChunkSectionPos.unpackZ(chunkPos)))) {
@@ -312,6 +336,8 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
 
         levelPropagator.checkForUpdates();
         this.initSkylightChunks.clear();
+
+        LightEvents.commitLightChunks(event, this.metrics, chunks);
     }
 
     @Unique
@@ -325,7 +351,7 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
         for (final LongIterator it = removedLightmaps.iterator(); it.hasNext(); ) {
             final long sectionPos = it.nextLong();
 
-            if (!this.enabledChunks.contains(ChunkSectionPos.withZeroY(sectionPos))) {
+            if (!this.isChunkEnabled(ChunkSectionPos.withZeroY(sectionPos))) {
                 continue;
             }
 
@@ -346,7 +372,7 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
                     }
                 }
 
-                this.updateVanillaLightmapsBelow(removedLightmapPosAbove, this.vanillaLightmapComplexities.get(sectionPosAbove) == 0 ? null : this.getLightSection(sectionPosAbove, true), false);
+                this.updateVanillaLightmapsBelow(removedLightmapPosAbove, this.getVanillaLightmapComplexity(sectionPosAbove) == 0 ? null : this.getLightSection(sectionPosAbove, true), false);
             }
         }
 
@@ -358,6 +384,8 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
      * @return The section containing the topmost block or the section corresponding to {@link SkyLightStorage.Data#minSectionY} if none exists.
      */
     private int fillSkylightColumn(final ChunkLightProvider<SkyLightStorage.Data, ?> lightProvider, final long chunkPos) {
+        final Object event = LightEvents.beginFillSkylightColumn();
+
         int minY = 16;
         ChunkNibbleArray lightmapAbove = null;
 
@@ -442,7 +470,7 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
         for (int y = 16; y > minY; --y) {
             final long sectionPos = ChunkSectionPos.asLong(ChunkSectionPos.unpackX(chunkPos), y, ChunkSectionPos.unpackZ(chunkPos));
 
-            if (this.nonOptimizableSections.contains(sectionPos)) {
+            if (this.isSectionNonOptimizable(sectionPos)) {
                 this.storage.put(sectionPos, this.createTrivialVanillaLightmap(DIRECT_SKYLIGHT_MAP));
                 this.dirtySections.add(sectionPos);
             }
@@ -450,6 +478,8 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
 
         this.storage.clearCache();
 
+        LightEvents.commitFillSkylightColumn(event, this.metrics, chunkPos, 16 - minY);
+
         return minY;
     }
 
@@ -468,11 +498,27 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
     @Unique
     private static final ChunkNibbleArray DIRECT_SKYLIGHT_MAP = createDirectSkyLightMap();
 
-    @Unique
-    private final Long2IntMap vanillaLightmapComplexities = new Long2IntOpenHashMap();
     @Unique
     private final LongSet removedLightmaps = new LongOpenHashSet();
 
+    /**
+     * Returns the sum of the light values in the bottom layer of the lightmap at the provided <code>sectionPos</code>, or 0 if there is no lightmap
+     */
+    @Unique
+    private int getVanillaLightmapComplexity(final long sectionPos) {
+        final LightColumnData column = this.getColumn(ChunkSectionPos.withZeroY(sectionPos));
+        return column == null ? 0 : column.getVanillaComplexity(ChunkSectionPos.unpackY(sectionPos));
+    }
+
+    @Unique
+    private void setVanillaLightmapComplexity(final long sectionPos, final int complexity) {
+        final long chunkPos = ChunkSectionPos.withZeroY(sectionPos);
+        final LightColumnData column = this.getOrCreateColumn(chunkPos);
+
+        column.setVanillaComplexity(ChunkSectionPos.unpackY(sectionPos), complexity);
+        this.releaseColumnIfEmpty(chunkPos, column);
+    }
+
     @Unique
     private static ChunkNibbleArray createDirectSkyLightMap() {
         final ChunkNibbleArray lightmap = new ChunkNibbleArray();
@@ -517,7 +563,7 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
         final long sectionPos = ChunkSectionPos.fromBlockPos(blockPos);
 
         if (ChunkSectionPos.getLocalCoord(BlockPos.unpackLongY(blockPos)) == 0) {
-            this.vanillaLightmapComplexities.put(sectionPos, this.vanillaLightmapComplexities.get(sectionPos) + newVal - oldVal);
+            this.setVanillaLightmapComplexity(sectionPos, this.getVanillaLightmapComplexity(sectionPos) + newVal - oldVal);
 
             final long sectionPosBelow = this.getSectionBelow(sectionPos);
 
@@ -534,7 +580,8 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
         // Vanilla lightmaps need to be re-parented as they otherwise leak a reference to the old lightmap
 
         if (this.dirtySections.add(sectionPos)) {
-            this.storage.replaceWithCopy(sectionPos);
+            this.replaceWithCopy(sectionPos);
+            this.metrics.countLightmapCopied();
             this.updateVanillaLightmapsBelow(sectionPos, this.getLightSection(sectionPos, true), false);
         }
     }
@@ -544,16 +591,32 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
 
     /**
      * Returns the first section below the provided <code>sectionPos</code> that {@link #hasSection(long) supports light propagations} or {@link Long#MAX_VALUE} if no such section exists.
+     * The section is looked up in the mask of sections with lightmaps, instead of checking every section below.
      */
     @Unique
-    private long getSectionBelow(long sectionPos) {
-        for (int y = ChunkSectionPos.unpackY(sectionPos); this.isAboveMinHeight(y); --y) {
-            if (this.hasSection(sectionPos = ChunkSectionPos.offset(sectionPos, Direction.DOWN))) {
-                return sectionPos;
-            }
+    private long getSectionBelow(final long sectionPos) {
+        final long chunkPos = ChunkSectionPos.withZeroY(sectionPos);
+
+        if (!this.isChunkEnabled(chunkPos)) {
+            return Long.MAX_VALUE;
         }
 
-        return Long.MAX_VALUE;
+        final int y = ChunkSectionPos.unpackY(sectionPos);
+
+        // Only keep the sections below
+        final int mask = ((SharedNibbleArrayMap) this.storage).getSectionMask(chunkPos) & ((1 << MathHelper.clamp(y + 1, 0, 18)) - 1);
+
+        if (mask == 0) {
+            return Long.MAX_VALUE;
+        }
+
+        final int yBelow = 31 - Integer.numberOfLeadingZeros(mask) - 1;
+
+        if (!this.isAboveMinHeight(yBelow + 1)) {
+            return Long.MAX_VALUE;
+        }
+
+        return ChunkSectionPosHelper.updateYLong(sectionPos, yBelow);
     }
 
     @Override
@@ -593,20 +656,24 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
 
     /**
      * Returns the first section above the provided <code>sectionPos</code> that {@link #hasLightmap(long)}  has a lightmap} or {@link Long#MAX_VALUE} if none exists.
+     * The section is looked up in the mask of sections with lightmaps, instead of checking every section above.
      */
     @Unique
-    private long getSectionAbove(long sectionPos) {
-        sectionPos = ChunkSectionPos.offset(sectionPos, Direction.UP);
-
-        if (this.isAtOrAboveTopmostSection(sectionPos)) {
+    private long getSectionAbove(final long sectionPos) {
+        if (this.isAtOrAboveTopmostSection(ChunkSectionPos.offset(sectionPos, Direction.UP))) {
             return Long.MAX_VALUE;
         }
 
-        while (!this.hasLightmap(sectionPos)) {
-            sectionPos = ChunkSectionPos.offset(sectionPos, Direction.UP);
+        final int y = ChunkSectionPos.unpackY(sectionPos);
+
+        // Only keep the sections above
+        final int mask = ((SharedNibbleArrayMap) this.storage).getLightmapMask(ChunkSectionPos.withZeroY(sectionPos)) & (-1 << MathHelper.clamp(y + 2, 0, 18));
+
+        if (mask == 0) {
+            return Long.MAX_VALUE;
         }
 
-        return sectionPos;
+        return ChunkSectionPosHelper.updateYLong(sectionPos, Integer.numberOfTrailingZeros(mask) - 1);
     }
 
     @Unique
@@ -718,7 +785,7 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
         if (sectionPosAbove == Long.MAX_VALUE) {
             complexity = this.isSectionEnabled(sectionPos) ? 15 * 16 * 16 : 0;
         } else {
-            complexity = this.vanillaLightmapComplexities.get(sectionPosAbove);
+            complexity = this.getVanillaLightmapComplexity(sectionPosAbove);
         }
 
         if (complexity == 0) {
@@ -727,7 +794,7 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
 
         // Need to create an actual lightmap in this case as it is non-trivial
 
-        final ChunkNibbleArray lightmap = new ChunkNibbleArray(new byte[2048]);
+        final ChunkNibbleArray lightmap = this.lightmapArrayPool.create();
         this.storage.put(sectionPos, lightmap);
         this.storage.clearCache();
 
@@ -745,7 +812,16 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
             return this.createTrivialVanillaLightmap(this.isSectionEnabled(sectionPos) ? DIRECT_SKYLIGHT_MAP : null);
         }
 
-        return this.createTrivialVanillaLightmap(this.vanillaLightmapComplexities.get(sectionPosAbove) == 0 ? null : this.getLightSection(sectionPosAbove, true));
+        return this.createTrivialVanillaLightmap(this.getVanillaLightmapComplexity(sectionPosAbove) == 0 ? null : this.getLightSection(sectionPosAbove, true));
+    }
+
+    @Override
+    protected void onLightmapReplaced(final long sectionPos, final ChunkNibbleArray lightmap) {
+        // Vanilla lightmaps below would otherwise keep the replaced lightmap alive
+
+        if (this.getVanillaLightmapComplexity(sectionPos) != 0 && this.isChunkEnabled(ChunkSectionPos.withZeroY(sectionPos))) {
+            this.updateVanillaLightmapsBelow(sectionPos, lightmap, false);
+        }
     }
 
     @Unique
@@ -771,12 +847,12 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
             }
         }
 
-        this.vanillaLightmapComplexities.put(sectionPos, complexity);
+        this.setVanillaLightmapComplexity(sectionPos, complexity);
         this.removedLightmaps.remove(sectionPos);
 
         // Enabling the chunk already creates all relevant vanilla lightmaps
 
-        if (!this.enabledChunks.contains(ChunkSectionPos.withZeroY(sectionPos))) {
+        if (!this.isChunkEnabled(ChunkSectionPos.withZeroY(sectionPos))) {
             return;
         }
 
@@ -790,9 +866,9 @@ public abstract class MixinSkyLightStorage extends MixinLightStorage<SkyLightSto
         at = @At("HEAD")
     )
     private void updateVanillaLightmapsOnLightmapRemoval(final long sectionPos, final CallbackInfo ci) {
-        this.vanillaLightmapComplexities.remove(sectionPos);
+        this.setVanillaLightmapComplexity(sectionPos, 0);
 
-        if (!this.enabledChunks.contains(ChunkSectionPos.withZeroY(sectionPos))) {
+        if (!this.isChunkEnabled(ChunkSectionPos.withZeroY(sectionPos))) {
             return;
         }
 
@@ -0,0 +1,95 @@
+package me.jellysquid.mods.phosphor.common.util.collections;
+
+import net.minecraft.util.math.BlockPos;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LevelBucketQueueTest {
+    private static final int LEVEL_COUNT = 16;
+
+    private SectionedPendingUpdateMap pendingUpdates;
+    private LevelBucketQueue queue;
+
+    @BeforeEach
+    public void setup() {
+        this.pendingUpdates = new SectionedPendingUpdateMap();
+        this.queue = new LevelBucketQueue(this.pendingUpdates, LEVEL_COUNT);
+    }
+
+    @Test
+    public void moveBetweenLevelsEmptiesPreviousLevel() {
+        final long pos = this.schedule(BlockPos.asLong(1, 2, 3), 4);
+
+        assertEquals(4, this.queue.add(pos, 7));
+
+        assertTrue(this.queue.isEmpty(4));
+        assertFalse(this.queue.isEmpty(7));
+        assertEquals(7, this.pendingUpdates.getQueuedLevel(pos));
+
+        assertEquals(pos, this.queue.removeFirst(7));
+        assertTrue(this.queue.isEmpty(7));
+    }
+
+    @Test
+    public void moveBetweenLevelsSkipsStaleEntry() {
+        final long moved = this.schedule(BlockPos.asLong(0, 0, 0), 4);
+        final long kept = this.schedule(BlockPos.asLong(1, 0, 0), 4);
+
+        this.queue.add(moved, 2);
+
+        // The stale entry of the moved position sits in front of the live one in level 4
+        assertFalse(this.queue.isEmpty(4));
+        assertEquals(kept, this.queue.removeFirst(4));
+        assertTrue(this.queue.isEmpty(4));
+
+        assertEquals(moved, this.queue.removeFirst(2));
+        assertTrue(this.queue.isEmpty(2));
+    }
+
+    @Test
+    public void moveBackReusesEmptiedLevel() {
+        final long pos = this.schedule(BlockPos.asLong(5, 5, 5), 3);
+
+        this.queue.add(pos, 6);
+        assertEquals(6, this.queue.add(pos, 3));
+
+        assertTrue(this.queue.isEmpty(6));
+        assertEquals(pos, this.queue.removeFirst(3));
+        assertTrue(this.queue.isEmpty(3));
+    }
+
+    @Test
+    public void addToSameLevelIsNoop() {
+        final long pos = this.schedule(BlockPos.asLong(8, 8, 8), 5);
+
+        assertEquals(5, this.queue.add(pos, 5));
+        assertEquals(pos, this.queue.removeFirst(5));
+        assertTrue(this.queue.isEmpty(5));
+    }
+
+    @Test
+    public void readdAfterRemoveTakesOverEarlierSlot() {
+        final long readded = this.schedule(BlockPos.asLong(0, 0, 0), 4);
+        final long other = this.schedule(BlockPos.asLong(1, 0, 0), 4);
+
+        assertEquals(4, this.queue.remove(readded));
+        assertEquals(SectionedPendingUpdateMap.NOT_QUEUED, this.queue.add(readded, 4));
+
+        // Vanilla would process the other position first, see the class documentation of LevelBucketQueue
+        assertEquals(readded, this.queue.removeFirst(4));
+        assertEquals(other, this.queue.removeFirst(4));
+        assertTrue(this.queue.isEmpty(4));
+    }
+
+    private long schedule(final long pos, final int level) {
+        this.pendingUpdates.put(pos, (byte) level);
+
+        assertEquals(SectionedPendingUpdateMap.NOT_QUEUED, this.queue.add(pos, level));
+
+        return pos;
+    }
+}